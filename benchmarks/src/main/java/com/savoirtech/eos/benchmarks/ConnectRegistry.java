@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.felix.connect.PojoServiceRegistryFactoryImpl;
+import org.apache.felix.connect.launch.PojoServiceRegistry;
+import org.apache.felix.connect.launch.PojoServiceRegistryFactory;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * An in-process OSGi service registry (backed by Felix Connect) which remembers the services registered through it,
+ * so that benchmark state can be torn down cleanly.  Registering through it is meant for setting up benchmark state;
+ * measured methods which churn registrations should use the bundle context directly, so that this bookkeeping is not
+ * measured along with them.
+ */
+public class ConnectRegistry {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final PojoServiceRegistry registry;
+    private final List<ServiceRegistration<?>> registrations = new CopyOnWriteArrayList<>();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public ConnectRegistry() throws Exception {
+        final Map<String, Object> config = new HashMap<>();
+        config.put(PojoServiceRegistryFactory.BUNDLE_DESCRIPTORS, Collections.emptyList());
+        this.registry = new PojoServiceRegistryFactoryImpl().newPojoServiceRegistry(config);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public BundleContext getBundleContext() {
+        return registry.getBundleContext();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Registers a service with the given properties (alternating names and values).
+     *
+     * @param serviceType the service type
+     * @param service     the service object
+     * @param properties  the service properties, as name/value pairs
+     * @param <S>         the service type
+     * @return the registration
+     */
+    public <S> ServiceRegistration<?> register(Class<S> serviceType, S service, Object... properties) {
+        final Hashtable<String, Object> dictionary = new Hashtable<>();
+        for (int i = 0; i + 1 < properties.length; i += 2) {
+            dictionary.put(String.valueOf(properties[i]), properties[i + 1]);
+        }
+        final ServiceRegistration<?> registration = registry.registerService(serviceType.getName(), service, dictionary);
+        registrations.add(registration);
+        return registration;
+    }
+
+    /**
+     * Unregisters all services registered using {@link #register(Class, Object, Object...)}.
+     */
+    public void unregisterAll() {
+        for (ServiceRegistration<?> registration : registrations) {
+            try {
+                registration.unregister();
+            } catch (IllegalStateException e) {
+                // Already unregistered.
+            }
+        }
+        registrations.clear();
+    }
+}
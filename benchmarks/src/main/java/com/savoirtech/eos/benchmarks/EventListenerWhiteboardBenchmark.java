@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.savoirtech.eos.pattern.whiteboard.EventListenerWhiteboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link EventListenerWhiteboard#fire()} across increasing numbers of listeners.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventListenerWhiteboardBenchmark {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Param({"1", "10", "100", "1000"})
+    private int listenerCount;
+
+    private ConnectRegistry registry;
+    private EventListenerWhiteboard<Listener> whiteboard;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Benchmark
+    public void fire(Blackhole blackhole) {
+        whiteboard.fire().onEvent(blackhole);
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        registry = new ConnectRegistry();
+        whiteboard = new EventListenerWhiteboard<>(registry.getBundleContext(), Listener.class);
+        for (int i = 0; i < listenerCount; i++) {
+            final Integer id = i;
+            registry.register(Listener.class, blackhole -> blackhole.consume(id));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        whiteboard.stop();
+        registry.unregisterAll();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public interface Listener {
+        void onEvent(Blackhole blackhole);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.savoirtech.eos.pattern.whiteboard.KeyedWhiteboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lookups on a {@link KeyedWhiteboard}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyedWhiteboardBenchmark {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Param({"10", "100", "1000"})
+    private int serviceCount;
+
+    private ConnectRegistry registry;
+    private KeyedWhiteboard<String, Greeter> whiteboard;
+    private String[] keys;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Benchmark
+    public Map<String, Greeter> asMap() {
+        return whiteboard.asMap();
+    }
+
+    @Benchmark
+    public Greeter getMissingService() {
+        return whiteboard.getService("missing");
+    }
+
+    @Benchmark
+    public Greeter getService(Cursor cursor) {
+        return whiteboard.getService(keys[cursor.next(keys.length)]);
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        registry = new ConnectRegistry();
+        whiteboard = new KeyedWhiteboard<>(registry.getBundleContext(), Greeter.class, (svc, props) -> props.getProperty("language"), serviceCount);
+        keys = new String[serviceCount];
+        for (int i = 0; i < serviceCount; i++) {
+            keys[i] = "language-" + i;
+            final String greeting = "Hello #" + i + ", ";
+            registry.register(Greeter.class, name -> greeting + name, "language", keys[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        whiteboard.stop();
+        registry.unregisterAll();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * A per-thread cursor used to cycle through the keys.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        int next(int length) {
+            position = position + 1 == length ? 0 : position + 1;
+            return position;
+        }
+    }
+}
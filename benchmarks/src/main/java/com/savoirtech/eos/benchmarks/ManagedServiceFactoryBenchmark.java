@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.benchmarks;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import com.savoirtech.eos.pattern.factory.AbstractManagedServiceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.cm.ConfigurationException;
+
+/**
+ * Measures the throughput of {@link AbstractManagedServiceFactory#updated(String, Dictionary)}, both for changed
+ * configurations (which replace the service object) and for redelivered, unchanged ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagedServiceFactoryBenchmark {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Param({"REPLACE", "SWAP"})
+    private AbstractManagedServiceFactory.UpdateStrategy updateStrategy;
+
+    @Param({"100"})
+    private int pidCount;
+
+    private ConnectRegistry registry;
+    private GreeterFactory factory;
+    private String[] pids;
+    private Dictionary<String, Object>[] configs;
+    private int next;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Benchmark
+    public void changedConfiguration() throws ConfigurationException {
+        // Each pass over the pids flips every one of them to the other configuration.
+        final int index = advance();
+        factory.updated(pids[index % pidCount], configs[(index / pidCount) & 1]);
+    }
+
+    @Benchmark
+    public void unchangedConfiguration() throws ConfigurationException {
+        factory.updated(pids[advance() % pidCount], configs[0]);
+    }
+
+    private int advance() {
+        final int index = next;
+        next = index + 1 == 2 * pidCount ? 0 : index + 1;
+        return index;
+    }
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        registry = new ConnectRegistry();
+        factory = new GreeterFactory(registry.getBundleContext());
+        factory.setUpdateStrategy(updateStrategy);
+        configs = new Dictionary[2];
+        configs[0] = new Hashtable<>();
+        configs[0].put("greeting", "Hello, ");
+        configs[1] = new Hashtable<>();
+        configs[1].put("greeting", "Hola, ");
+        pids = new String[pidCount];
+        for (int i = 0; i < pidCount; i++) {
+            pids[i] = "pid-" + i;
+            factory.updated(pids[i], configs[0]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (String pid : pids) {
+            factory.deleted(pid);
+        }
+        registry.unregisterAll();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static class GreeterFactory extends AbstractManagedServiceFactory<Greeter> {
+        public GreeterFactory(BundleContext bundleContext) {
+            super(bundleContext, Greeter.class);
+        }
+
+        @Override
+        protected Greeter newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+            final String greeting = getProperty("greeting", configProperties);
+            return name -> greeting + name;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.benchmarks;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import com.savoirtech.eos.pattern.whiteboard.KeyedWhiteboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * Measures registration/unregistration churn on a tracked service type while other threads look services up, so
+ * that both the cost of tracking and the interference it causes for readers are visible.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistrationChurnBenchmark {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final int STABLE_SERVICE_COUNT = 100;
+
+    private static final Greeter CHURN_GREETER = name -> "Hi, " + name;
+
+    private ConnectRegistry registry;
+    private BundleContext bundleContext;
+    private Dictionary<String, Object> churnProperties;
+    private KeyedWhiteboard<String, Greeter> whiteboard;
+    private String[] keys;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(4)
+    public Greeter lookup(KeyedWhiteboardBenchmark.Cursor cursor) {
+        return whiteboard.getService(keys[cursor.next(keys.length)]);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(2)
+    public void registerAndUnregister() {
+        // Registered directly (rather than through the registry's bookkeeping), since it is unregistered right away.
+        final ServiceRegistration<Greeter> registration = bundleContext.registerService(Greeter.class, CHURN_GREETER, churnProperties);
+        registration.unregister();
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        registry = new ConnectRegistry();
+        bundleContext = registry.getBundleContext();
+        churnProperties = new Hashtable<>();
+        churnProperties.put("language", "churn");
+        whiteboard = new KeyedWhiteboard<>(registry.getBundleContext(), Greeter.class, (svc, props) -> props.getProperty("language"));
+        keys = new String[STABLE_SERVICE_COUNT];
+        for (int i = 0; i < STABLE_SERVICE_COUNT; i++) {
+            keys[i] = "stable-" + i;
+            registry.register(Greeter.class, name -> "Hello, " + name, "language", keys[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        whiteboard.stop();
+        registry.unregisterAll();
+    }
+}
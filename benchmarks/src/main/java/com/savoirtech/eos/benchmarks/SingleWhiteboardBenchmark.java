@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.savoirtech.eos.pattern.whiteboard.SingleWhiteboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures lookups on a {@link SingleWhiteboard}, both single-threaded and from several threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingleWhiteboardBenchmark {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private ConnectRegistry registry;
+    private SingleWhiteboard<Greeter> whiteboard;
+    private SingleWhiteboard<Runnable> empty;
+    private final Greeter fallback = name -> "Hi, " + name;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Benchmark
+    public Greeter getService() {
+        return whiteboard.getService();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Greeter getServiceContended() {
+        return whiteboard.getService();
+    }
+
+    @Benchmark
+    public Runnable getServiceWithDefault() {
+        return empty.getService(() -> () -> {
+        });
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        registry = new ConnectRegistry();
+        whiteboard = new SingleWhiteboard<>(registry.getBundleContext(), Greeter.class);
+        empty = new SingleWhiteboard<>(registry.getBundleContext(), Runnable.class);
+        registry.register(Greeter.class, name -> "Hello, " + name);
+    }
+
+    @TearDown
+    public void tearDown() {
+        whiteboard.stop();
+        empty.stop();
+        registry.unregisterAll();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * The default {@link Metrics} implementation, built on {@link LongAdder} so that concurrent updates do not contend.
+ * It is also a {@link DynamicMBean}, so it can be registered with an MBean server as is.  Each counter is exposed as
+ * an attribute of the same name, and each timer as four attributes: {@code <name>.count}, {@code <name>.totalNanos},
+ * {@code <name>.maxNanos} and {@code <name>.meanNanos}.  A {@code reset} operation zeroes all instruments.
+ */
+public class LongAdderMetrics implements Metrics, DynamicMBean {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final String COUNT = ".count";
+    private static final String TOTAL_NANOS = ".totalNanos";
+    private static final String MAX_NANOS = ".maxNanos";
+    private static final String MEAN_NANOS = ".meanNanos";
+    private static final String RESET = "reset";
+
+    private final ConcurrentMap<String, LongAdderCounter> counters = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, LongAdderTimer> timers = new ConcurrentSkipListMap<>();
+
+//----------------------------------------------------------------------------------------------------------------------
+// DynamicMBean Implementation
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        final LongAdderCounter counter = counters.get(attribute);
+        if (counter != null) {
+            return counter.getCount();
+        }
+        final int separator = attribute.lastIndexOf('.');
+        final LongAdderTimer timer = separator < 0 ? null : timers.get(attribute.substring(0, separator));
+        if (timer != null) {
+            switch (attribute.substring(separator)) {
+                case COUNT:
+                    return timer.getCount();
+                case TOTAL_NANOS:
+                    return timer.getTotalNanos();
+                case MAX_NANOS:
+                    return timer.getMaxNanos();
+                case MEAN_NANOS:
+                    return timer.getMeanNanos();
+                default:
+                    break;
+            }
+        }
+        throw new AttributeNotFoundException("No attribute named \"" + attribute + "\".");
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        final AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // Omitted, as per the DynamicMBean contract.
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : counters.keySet()) {
+            attributes.add(new MBeanAttributeInfo(name, long.class.getName(), "Counter \"" + name + "\".", true, false, false));
+        }
+        for (String name : timers.keySet()) {
+            attributes.add(new MBeanAttributeInfo(name + COUNT, long.class.getName(), "Number of \"" + name + "\" events.", true, false, false));
+            attributes.add(new MBeanAttributeInfo(name + TOTAL_NANOS, long.class.getName(), "Total duration of \"" + name + "\" events (ns).", true, false, false));
+            attributes.add(new MBeanAttributeInfo(name + MAX_NANOS, long.class.getName(), "Longest \"" + name + "\" event (ns).", true, false, false));
+            attributes.add(new MBeanAttributeInfo(name + MEAN_NANOS, double.class.getName(), "Mean duration of \"" + name + "\" events (ns).", true, false, false));
+        }
+        final MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "Zeroes all counters and timers.", null, void.class.getName(), MBeanOperationInfo.ACTION);
+        return new MBeanInfo(getClass().getName(), "Eos metrics", attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, new MBeanOperationInfo[]{reset}, null);
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (RESET.equals(actionName) && (params == null || params.length == 0)) {
+            reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName), "No operation named \"" + actionName + "\".");
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Attribute \"" + attribute.getName() + "\" is read-only.");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Metrics Implementation
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public LongAdderCounter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdderCounter());
+    }
+
+    @Override
+    public LongAdderTimer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new LongAdderTimer());
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public Map<String, LongAdderCounter> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Map<String, LongAdderTimer> getTimers() {
+        return Collections.unmodifiableMap(timers);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Zeroes all counters and timers.  Updates made concurrently with a reset may or may not be retained.
+     */
+    public void reset() {
+        counters.values().forEach(LongAdderCounter::reset);
+        timers.values().forEach(LongAdderTimer::reset);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static final class LongAdderCounter implements Counter {
+        private final LongAdder count = new LongAdder();
+
+        private LongAdderCounter() {
+        }
+
+        @Override
+        public void increment() {
+            count.increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        private void reset() {
+            count.reset();
+        }
+    }
+
+    public static final class LongAdderTimer implements Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private LongAdderTimer() {
+        }
+
+        @Override
+        public void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanNanos() {
+            final long n = count.sum();
+            return n == 0 ? 0.0 : (double) totalNanos.sum() / n;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        private void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.metrics;
+
+/**
+ * A service provider interface for recording metrics.  Instruments are looked up by name once, when a component is
+ * given its metrics, so that recording a value never allocates:
+ * <pre>
+ * LongAdderMetrics metrics = new LongAdderMetrics();
+ * whiteboard.setMetrics(metrics);
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("com.savoirtech.eos:type=Whiteboard,name=greeters"));
+ * </pre>
+ * Implementations must be thread-safe, and should return the same instrument for the same name.
+ */
+public interface Metrics {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Metrics which record nothing (the default for all components).
+     */
+    Metrics NONE = NoMetrics.INSTANCE;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the counter with the given name.
+     *
+     * @param name the counter name
+     * @return the counter
+     */
+    Counter counter(String name);
+
+    /**
+     * Returns the timer with the given name.
+     *
+     * @param name the timer name
+     * @return the timer
+     */
+    Timer timer(String name);
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * A monotonically increasing count of events.
+     */
+    interface Counter {
+        void increment();
+    }
+
+    /**
+     * A record of the durations of events.
+     */
+    interface Timer {
+        /**
+         * Records the duration of an event.
+         *
+         * @param nanos the duration, in nanoseconds (typically the difference of two {@link System#nanoTime()} calls)
+         */
+        void record(long nanos);
+    }
+}
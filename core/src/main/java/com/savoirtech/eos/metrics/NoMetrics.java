@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.metrics;
+
+/**
+ * The {@link Metrics#NONE} implementation, which is its own (no-op) counter and timer.
+ */
+enum NoMetrics implements Metrics, Metrics.Counter, Metrics.Timer {
+    INSTANCE;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Counter Implementation
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void increment() {
+        // Do nothing!
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Metrics Implementation
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public Counter counter(String name) {
+        return this;
+    }
+
+    @Override
+    public Timer timer(String name) {
+        return this;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Timer Implementation
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void record(long nanos) {
+        // Do nothing!
+    }
+}
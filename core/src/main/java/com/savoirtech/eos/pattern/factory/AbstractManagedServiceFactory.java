@@ -17,18 +17,45 @@
 package com.savoirtech.eos.pattern.factory;
 
 import com.google.common.collect.MapMaker;
+import com.savoirtech.eos.metrics.Metrics;
 import com.savoirtech.eos.util.TypeVariableUtils;
 import org.apache.commons.lang3.Validate;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceFactory;
 import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedServiceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Superclass for implementing {@link ManagedServiceFactory} implementations.
@@ -40,16 +67,61 @@ public abstract class AbstractManagedServiceFactory<T> implements ManagedService
 // Fields
 //----------------------------------------------------------------------------------------------------------------------
 
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(1);
+
+    public static final int DEFAULT_RECONCILE_BATCH_SIZE = 100;
+
+    /**
+     * Configuration keys which are ignored when deciding whether a pid's configuration has changed.
+     */
+    public static final Set<String> DEFAULT_VOLATILE_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Constants.SERVICE_PID,
+            ConfigurationAdmin.SERVICE_FACTORYPID,
+            ConfigurationAdmin.SERVICE_BUNDLELOCATION,
+            "felix.fileinstall.filename")));
+
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractManagedServiceFactory.class);
 
+    private static final ThreadLocal<List<SharedResources.Lease<?>>> CREATION_LEASES = new ThreadLocal<>();
+
     private final Class<T> serviceType;
-    private final Map<String, ServiceRegistration<T>> registrations = new MapMaker().concurrencyLevel(5).makeMap();
+    private final Map<String, Lifecycle> ledger = new MapMaker().concurrencyLevel(5).makeMap();
+    private final ConcurrentMap<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Debounced> debounced = new ConcurrentHashMap<>();
     private final BundleContext bundleContext;
+    private volatile UpdateStrategy updateStrategy = UpdateStrategy.REPLACE;
+    private volatile Duration drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+    private volatile Set<String> volatileKeys = DEFAULT_VOLATILE_KEYS;
+    private volatile Executor executor;
+    private volatile boolean lazy;
+    private volatile Duration idleTimeout;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile Duration debounceWindow;
+    private volatile Duration warmUpBudget;
+    private volatile Executor warmUpExecutor;
+    private volatile Instruments instruments = new Instruments(Metrics.NONE);
 
 //----------------------------------------------------------------------------------------------------------------------
 // Static Methods
 //----------------------------------------------------------------------------------------------------------------------
 
+    private static Dictionary<String, ?> copyOf(Dictionary<String, ?> properties) {
+        final Hashtable<String, Object> copy = new Hashtable<>();
+        if (properties != null) {
+            for (Enumeration<String> keys = properties.keys(); keys.hasMoreElements(); ) {
+                final String key = keys.nextElement();
+                copy.put(key, properties.get(key));
+            }
+        }
+        return copy;
+    }
+
+    private static void releaseAll(List<SharedResources.Lease<?>> leases) {
+        for (SharedResources.Lease<?> lease : leases) {
+            lease.close();
+        }
+    }
+
     protected static String getProperty(String name, Dictionary<String, ?> configProperties) throws ConfigurationException {
         return getProperty(name, true, configProperties);
     }
@@ -106,13 +178,15 @@ public abstract class AbstractManagedServiceFactory<T> implements ManagedService
 
     @Override
     public void deleted(String pid) {
-        final ServiceRegistration<T> registration = registrations.get(pid);
-        if (registration != null) {
-            LOGGER.info("Unregistering OSGi service for pid \"{}\"...", pid);
-            final T service = bundleContext.getService(registration.getReference());
-            registration.unregister();
-            LOGGER.info("Destroying service object for pid \"{}\"...", pid);
-            destroy(pid, service);
+        final Executor target = executor;
+        final ScheduledExecutorService timer = scheduler;
+        final Duration window = debounceWindow;
+        if (window != null && timer != null) {
+            debounce(timer, window, pid, "delete", () -> applyDelete(pid));
+        } else if (target == null) {
+            applyNow(pid, () -> applyDelete(pid));
+        } else {
+            submit(target, pid, "delete", () -> applyDelete(pid));
         }
     }
 
@@ -123,29 +197,664 @@ public abstract class AbstractManagedServiceFactory<T> implements ManagedService
 
     @Override
     public void updated(String pid, Dictionary<String, ?> properties) throws ConfigurationException {
-        deleted(pid);
-        LOGGER.info("Creating new service object for pid \"{}\"...", pid);
-        T service = newService(pid, properties);
-
-        final Dictionary<String, ?> serviceProperties = serviceProperties(properties);
-        LOGGER.info("Registering OSGi service for pid \"{}\" using service properties \n{}...", pid, serviceProperties);
-        final ServiceRegistration<T> registration = bundleContext.registerService(serviceType, service, serviceProperties);
-        registrations.put(pid, registration);
-        LOGGER.info("Successfully registered OSGi service for pid \"{}\".", pid);
+        final Executor target = executor;
+        final ScheduledExecutorService timer = scheduler;
+        final Duration window = debounceWindow;
+        if (window != null && timer != null) {
+            final Dictionary<String, ?> copy = copyOf(properties);
+            debounce(timer, window, pid, "update", () -> applyUpdate(pid, copy));
+        } else if (target == null) {
+            applyNow(pid, () -> applyUpdate(pid, properties));
+        } else {
+            final Dictionary<String, ?> copy = copyOf(properties);
+            submit(target, pid, "update", () -> applyUpdate(pid, copy));
+        }
     }
 
 //----------------------------------------------------------------------------------------------------------------------
 // Getter/Setter Methods
 //----------------------------------------------------------------------------------------------------------------------
 
+    public Duration getDebounceWindow() {
+        return debounceWindow;
+    }
+
+    /**
+     * Enables debouncing, in which a burst of {@link #updated(String, Dictionary)} and {@link #deleted(String)} calls
+     * for the same pid is coalesced, and only the last of them is applied once no further calls have arrived for the
+     * given window.  Debouncing requires a scheduler (see {@link #setScheduler(ScheduledExecutorService)}), which must
+     * be set first and also performs the work unless an executor is set (see {@link #setExecutor(Executor)}).  As in
+     * asynchronous mode, {@link ConfigurationException}s are logged rather than thrown.  Passing null disables
+     * debouncing.
+     *
+     * @param debounceWindow the debounce window (or null)
+     * @throws IllegalStateException if a debounce window is given but no scheduler is set
+     */
+    public void setDebounceWindow(Duration debounceWindow) {
+        Validate.validState(debounceWindow == null || scheduler != null, "Debouncing requires a scheduler; call setScheduler() first.");
+        this.debounceWindow = debounceWindow;
+    }
+
+    public Duration getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * Sets the maximum time to wait for calls in flight on a replaced or deleted service object to complete before
+     * it is destroyed (by default, {@link #DEFAULT_DRAIN_TIMEOUT}).  Only applies to service objects which implement
+     * {@link Drainable}.
+     * <p>
+     * <b>Draining blocks the thread applying the update or delete.</b>  In synchronous mode, that is Configuration
+     * Admin's delivery thread, which is shared by every pid of every factory, so a service object with a slow call in
+     * flight holds up all other configuration events for up to this long.  Keep the timeout short, or set an executor
+     * (see {@link #setExecutor(Executor)}) so that only the pid's own pending work waits for the drain.
+     *
+     * @param drainTimeout the drain timeout
+     */
+    public void setDrainTimeout(Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Enables asynchronous mode, in which {@link #updated(String, Dictionary)} and {@link #deleted(String)} return
+     * immediately and the work is performed using the given executor (typically a bounded pool such as
+     * {@link java.util.concurrent.Executors#newFixedThreadPool(int)}).  Work for different pids proceeds in parallel,
+     * while work for the same pid is always performed in the order it was received.  Since the work happens after
+     * Config Admin's call returns, {@link ConfigurationException}s are logged rather than thrown; use
+     * {@link #awaitPending()} to find out when (and whether) the pending work completed.  Passing null restores
+     * synchronous mode.
+     *
+     * @param executor the executor (or null)
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets how long a lazily created service object (see {@link #setLazy(boolean)}) may go unused before it is
+     * destroyed.  An evicted service object is recreated the next time a consumer gets the service.  Eviction requires
+     * a scheduler (see {@link #setScheduler(ScheduledExecutorService)}), which must be set first; passing null disables
+     * eviction.
+     *
+     * @param idleTimeout the idle timeout (or null)
+     * @throws IllegalStateException if an idle timeout is given but no scheduler is set
+     */
+    public void setIdleTimeout(Duration idleTimeout) {
+        Validate.validState(idleTimeout == null || scheduler != null, "Idle eviction requires a scheduler; call setScheduler() first.");
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Sets the metrics used by this factory (by default, nothing is recorded).  The counters {@code created},
+     * {@code updated}, {@code unchanged}, {@code deleted} and {@code failed} record the outcomes of configuration
+     * events, and the timer {@code newService} records the duration of {@link #newService(String, Dictionary)} calls.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        this.instruments = new Instruments(metrics);
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Sets the scheduler used to evict idle service objects (see {@link #setIdleTimeout(Duration)}) and to time the
+     * debounce window (see {@link #setDebounceWindow(Duration)}), in which case it also performs the debounced work
+     * unless an executor is set.  The scheduler is not owned by this factory and will not be shut down by it.
+     *
+     * @param scheduler the scheduler (or null)
+     * @throws IllegalStateException if the scheduler is removed while debouncing or idle eviction is enabled
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        Validate.validState(scheduler != null || debounceWindow == null, "Debouncing requires a scheduler; disable debouncing first.");
+        Validate.validState(scheduler != null || idleTimeout == null, "Idle eviction requires a scheduler; disable idle eviction first.");
+        this.scheduler = scheduler;
+    }
+
     protected Class<T> getServiceType() {
         return serviceType;
     }
 
+    public UpdateStrategy getUpdateStrategy() {
+        return updateStrategy;
+    }
+
+    public void setUpdateStrategy(UpdateStrategy updateStrategy) {
+        this.updateStrategy = updateStrategy;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Enables lazy mode, in which the service is registered as an OSGi {@link ServiceFactory} and
+     * {@link #newService(String, Dictionary)} is only called when a consumer first gets the service.  Since the service
+     * object is created outside of Config Admin's call, {@link ConfigurationException}s thrown by
+     * {@link #newService(String, Dictionary)} are logged (and the consumer gets no service object) rather than thrown.
+     *
+     * @param lazy whether service objects should be created lazily
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public Duration getWarmUpBudget() {
+        return warmUpBudget;
+    }
+
+    /**
+     * Enables the warm-up phase, in which {@link #warmUp(String, Object)} is called for each newly created service
+     * object before it is registered.  Registration proceeds once the warm-up completes, fails or exceeds the given
+     * budget.  Warm-ups run on the thread creating the service object, in which case the budget cannot be enforced
+     * and an overrun is merely logged, unless a warm-up executor is set (see {@link #setWarmUpExecutor(Executor)}).
+     * Warm-ups do not apply in lazy mode.  Passing null (the default) disables the warm-up phase.
+     *
+     * @param warmUpBudget the maximum time to spend warming up a service object (or null)
+     */
+    public void setWarmUpBudget(Duration warmUpBudget) {
+        this.warmUpBudget = warmUpBudget;
+    }
+
+    public Executor getWarmUpExecutor() {
+        return warmUpExecutor;
+    }
+
+    /**
+     * Sets the executor used to run warm-ups (see {@link #setWarmUpBudget(Duration)}), so that the budget can be
+     * enforced: the creating thread waits at most for the budget, after which the warm-up is interrupted and the
+     * service object is registered anyway.  Since warm-ups may block and are interrupted when they overrun, the
+     * executor should be dedicated to this factory's warm-ups (a shared pool such as the common fork/join pool would
+     * both be starved by them and have its workers interrupted).  The executor is not owned by this factory and will
+     * not be shut down by it.  Passing null (the default) runs warm-ups inline.
+     *
+     * @param warmUpExecutor the warm-up executor (or null)
+     */
+    public void setWarmUpExecutor(Executor warmUpExecutor) {
+        this.warmUpExecutor = warmUpExecutor;
+    }
+
+    public Set<String> getVolatileKeys() {
+        return volatileKeys;
+    }
+
+    /**
+     * Sets the configuration keys which are ignored when deciding whether a redelivered configuration differs from
+     * the one currently applied (defaults to {@link #DEFAULT_VOLATILE_KEYS}).
+     *
+     * @param volatileKeys the volatile keys
+     */
+    public void setVolatileKeys(Set<String> volatileKeys) {
+        this.volatileKeys = Collections.unmodifiableSet(new HashSet<>(volatileKeys));
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Other Methods
 //----------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Returns a future which completes once all of the work pending at the time of the call (see
+     * {@link #setExecutor(Executor)} and {@link #setDebounceWindow(Duration)}) has been performed.  The future
+     * completes exceptionally if any of that work failed.  In synchronous mode, the returned future is already
+     * complete.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> awaitPending() {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(pending.values());
+        debounced.values().forEach(entry -> futures.add(entry.completion));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]));
+    }
+
+    /**
+     * Returns the number of pids with work pending (see {@link #setExecutor(Executor)} and
+     * {@link #setDebounceWindow(Duration)}).
+     *
+     * @return the number of pids with work pending
+     */
+    public int getPendingCount() {
+        final Set<String> pids = new HashSet<>(pending.keySet());
+        pids.addAll(debounced.keySet());
+        return pids.size();
+    }
+
+    /**
+     * Returns the lifecycle state of the given pid's service object.
+     *
+     * @param pid the service pid
+     * @return the lifecycle state, or null if the factory holds no service object for the pid
+     */
+    public LifecycleState getLifecycleState(String pid) {
+        final Lifecycle lifecycle = ledger.get(pid);
+        return lifecycle == null ? null : lifecycle.state;
+    }
+
+    /**
+     * Returns a snapshot of the lifecycle status of every pid for which this factory holds a service object, sorted
+     * by pid.
+     *
+     * @return the lifecycle status of each pid
+     */
+    public Map<String, LifecycleStatus> getLifecycleStatus() {
+        final Map<String, LifecycleStatus> status = new TreeMap<>();
+        ledger.forEach((pid, lifecycle) -> status.put(pid, lifecycle.status(pid)));
+        return Collections.unmodifiableMap(status);
+    }
+
+    /**
+     * Reconciles the service objects of this factory with a desired set of configurations, using the configured
+     * executor (see {@link #setExecutor(Executor)}) and batches of {@link #DEFAULT_RECONCILE_BATCH_SIZE}.  Since
+     * creating service objects may block, there is no default executor; use {@link #reconcile(Map, Executor, int)}
+     * to reconcile a factory in synchronous mode.
+     *
+     * @param desired the desired configurations, keyed by pid
+     * @return a future which completes with a summary once all changes have been applied
+     * @throws IllegalStateException if no executor is set
+     * @see #reconcile(Map, Executor, int)
+     */
+    public CompletableFuture<ReconcileSummary> reconcile(Map<String, ? extends Dictionary<String, ?>> desired) {
+        final Executor target = executor;
+        Validate.validState(target != null, "No executor set; reconciliation requires an executor.");
+        return reconcile(desired, target, DEFAULT_RECONCILE_BATCH_SIZE);
+    }
+
+    /**
+     * Reconciles the service objects of this factory with a desired set of configurations: pids which are missing
+     * are created, pids whose configuration differs are updated and pids which are not desired are deleted, while pids
+     * whose configuration is unchanged are not touched at all.  The changes are applied in parallel using the given
+     * executor, at most <code>batchSize</code> at a time, and in order with any other pending work for the same pid.
+     * Individual failures do not abort the reconciliation; they are reported in the summary, which is logged once all
+     * changes have been applied.
+     *
+     * @param desired   the desired configurations, keyed by pid
+     * @param target    the executor used to apply the changes
+     * @param batchSize the maximum number of changes applied concurrently
+     * @return a future which completes with a summary once all changes have been applied
+     */
+    public CompletableFuture<ReconcileSummary> reconcile(Map<String, ? extends Dictionary<String, ?>> desired, Executor target, int batchSize) {
+        Validate.notNull(target, "Executor cannot be null.");
+        Validate.isTrue(batchSize > 0, "Batch size must be positive.");
+        final long start = System.nanoTime();
+        final Set<String> ignoredKeys = volatileKeys;
+        final List<ReconcileAction> actions = new ArrayList<>();
+        int unchanged = 0;
+        for (Map.Entry<String, ? extends Dictionary<String, ?>> entry : desired.entrySet()) {
+            final String pid = entry.getKey();
+            final Dictionary<String, ?> properties = copyOf(entry.getValue());
+            final Lifecycle lifecycle = ledger.get(pid);
+            final ManagedInstance current = lifecycle == null ? null : lifecycle.instance;
+            if (current != null && current.fingerprint.equals(ConfigurationFingerprint.of(properties, ignoredKeys))) {
+                unchanged++;
+            } else {
+                actions.add(new ReconcileAction(pid, lifecycle == null ? Change.CREATE : Change.UPDATE, () -> applyUpdate(pid, properties)));
+            }
+        }
+        for (String pid : ledger.keySet()) {
+            if (!desired.containsKey(pid)) {
+                actions.add(new ReconcileAction(pid, Change.DELETE, () -> applyDelete(pid)));
+            }
+        }
+        final ReconcileTally tally = new ReconcileTally(unchanged);
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int from = 0; from < actions.size(); from += batchSize) {
+            final List<ReconcileAction> batch = actions.subList(from, Math.min(from + batchSize, actions.size()));
+            chain = chain.thenCompose(ignored -> CompletableFuture.allOf(batch.stream()
+                    .map(action -> submit(target, action.pid, action.change.description, action.task).handle((result, error) -> tally.record(action, error)))
+                    .toArray(CompletableFuture<?>[]::new)));
+        }
+        return chain.thenApply(ignored -> {
+            final ReconcileSummary summary = tally.summarize(Duration.ofNanos(System.nanoTime() - start));
+            LOGGER.info("{}", summary);
+            return summary;
+        });
+    }
+
+    private void applyDelete(String pid) {
+        if (discard(pid)) {
+            instruments.deleted.increment();
+        }
+    }
+
+    private void applyUpdate(String pid, Dictionary<String, ?> properties) throws ConfigurationException {
+        final ConfigurationFingerprint fingerprint = ConfigurationFingerprint.of(properties, volatileKeys);
+        final Instruments instruments = this.instruments;
+        final Lifecycle existing = ledger.get(pid);
+        if (existing != null) {
+            final ManagedInstance current = existing.instance;
+            if (current.fingerprint.equals(fingerprint)) {
+                LOGGER.info("Configuration for pid \"{}\" has not changed; keeping existing service object.", pid);
+                instruments.unchanged.increment();
+                return;
+            }
+            if (reconfigureInPlace(pid, current, properties)) {
+                existing.instance = current.reconfigured(properties, fingerprint);
+                instruments.updated.increment();
+                return;
+            }
+        }
+        if (existing == null || updateStrategy == UpdateStrategy.REPLACE) {
+            discard(pid);
+            // A replacement keeps the pid's original creation time, as it does when swapping.
+            final Lifecycle lifecycle = new Lifecycle(existing == null ? System.currentTimeMillis() : existing.created);
+            ledger.put(pid, lifecycle);
+            try {
+                lifecycle.activate(register(pid, properties, fingerprint));
+            } catch (ConfigurationException | RuntimeException e) {
+                ledger.remove(pid, lifecycle);
+                instruments.failed.increment();
+                throw e;
+            }
+            (existing == null ? instruments.created : instruments.updated).increment();
+        } else {
+            existing.transition(LifecycleState.SWAPPING);
+            final ManagedInstance previous = existing.instance;
+            final ManagedInstance replacement;
+            try {
+                replacement = register(pid, properties, fingerprint);
+            } catch (ConfigurationException | RuntimeException e) {
+                existing.transition(LifecycleState.ACTIVE);
+                instruments.failed.increment();
+                throw e;
+            }
+            existing.instance = replacement;
+            retire(pid, previous);
+            existing.transition(LifecycleState.ACTIVE);
+            instruments.updated.increment();
+        }
+    }
+
+    private boolean discard(String pid) {
+        final Lifecycle lifecycle = ledger.get(pid);
+        if (lifecycle == null) {
+            return false;
+        }
+        lifecycle.transition(LifecycleState.DESTROYING);
+        retire(pid, lifecycle.instance);
+        ledger.remove(pid, lifecycle);
+        return true;
+    }
+
+    private ManagedInstance register(String pid, Dictionary<String, ?> properties, ConfigurationFingerprint fingerprint) throws ConfigurationException {
+        final ManagedInstance instance;
+        if (lazy) {
+            final LazyService lazyService = new LazyService(pid, properties);
+            final Dictionary<String, ?> serviceProperties = serviceProperties(properties);
+            LOGGER.info("Registering lazy OSGi service for pid \"{}\" using service properties \n{}...", pid, serviceProperties);
+            instance = new ManagedInstance(registerLazily(lazyService, serviceProperties), null, lazyService, Collections.emptyList(), properties, fingerprint, null);
+        } else {
+            LOGGER.info("Creating new service object for pid \"{}\"...", pid);
+            final List<SharedResources.Lease<?>> leases = new ArrayList<>();
+            final T service = create(pid, properties, leases);
+            try {
+                final Duration warmUpTime = runWarmUp(pid, service);
+                final Dictionary<String, ?> serviceProperties = serviceProperties(properties);
+                LOGGER.info("Registering OSGi service for pid \"{}\" using service properties \n{}...", pid, serviceProperties);
+                instance = new ManagedInstance(bundleContext.registerService(serviceType, service, serviceProperties), service, null, leases, properties, fingerprint, warmUpTime);
+            } catch (ConfigurationException | RuntimeException e) {
+                releaseAll(leases);
+                throw e;
+            }
+        }
+        LOGGER.info("Successfully registered OSGi service for pid \"{}\".", pid);
+        return instance;
+    }
+
+    private Duration runWarmUp(String pid, T service) {
+        final Duration budget = warmUpBudget;
+        if (budget == null) {
+            return null;
+        }
+        LOGGER.info("Warming up service object for pid \"{}\" (budget {})...", pid, budget);
+        final long start = System.nanoTime();
+        final Executor target = warmUpExecutor;
+        if (target == null) {
+            try {
+                warmUp(pid, service);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.warn("Warm-up of service object for pid \"{}\" failed after {}; registering it anyway.", pid, Duration.ofNanos(System.nanoTime() - start), e);
+                return Duration.ofNanos(System.nanoTime() - start);
+            }
+            final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            if (elapsed.compareTo(budget) > 0) {
+                LOGGER.warn("Warm-up of service object for pid \"{}\" took {}, exceeding its budget of {}.", pid, elapsed, budget);
+            } else {
+                LOGGER.info("Warmed up service object for pid \"{}\" in {}.", pid, elapsed);
+            }
+            return elapsed;
+        }
+        final FutureTask<Void> task = new FutureTask<>(() -> {
+            warmUp(pid, service);
+            return null;
+        });
+        target.execute(task);
+        try {
+            task.get(budget.toNanos(), TimeUnit.NANOSECONDS);
+            LOGGER.info("Warmed up service object for pid \"{}\" in {}.", pid, Duration.ofNanos(System.nanoTime() - start));
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            LOGGER.warn("Warm-up of service object for pid \"{}\" exceeded its budget of {}; registering it anyway.", pid, budget);
+        } catch (ExecutionException e) {
+            LOGGER.warn("Warm-up of service object for pid \"{}\" failed after {}; registering it anyway.", pid, Duration.ofNanos(System.nanoTime() - start), e.getCause());
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Subclasses can override this method in order to warm up a newly created service instance (priming caches,
+     * opening connections, exercising hot code paths) before it is registered and takes traffic.  Only called if a
+     * warm-up budget is set (see {@link #setWarmUpBudget(Duration)}); when warm-ups run on a warm-up executor,
+     * implementations should respond to interruption, which signals that the budget has been exceeded.  Default
+     * implementation is a no-op.
+     *
+     * @param pid     the service pid
+     * @param service the service instance
+     * @throws Exception if the warm-up fails (the service instance is registered regardless)
+     */
+    protected void warmUp(String pid, T service) throws Exception {
+        // Do nothing!
+    }
+
+    private T create(String pid, Dictionary<String, ?> properties, List<SharedResources.Lease<?>> leases) throws ConfigurationException {
+        final List<SharedResources.Lease<?>> outer = CREATION_LEASES.get();
+        CREATION_LEASES.set(leases);
+        final Metrics.Timer timer = instruments.newService;
+        final long start = System.nanoTime();
+        try {
+            return newService(pid, properties);
+        } catch (ConfigurationException | RuntimeException e) {
+            releaseAll(leases);
+            throw e;
+        } finally {
+            timer.record(System.nanoTime() - start);
+            if (outer == null) {
+                CREATION_LEASES.remove();
+            } else {
+                CREATION_LEASES.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Acquires a shared resource on behalf of the service object being created.  The resource is released
+     * automatically when that service object is destroyed (or if its creation fails), so that it is closed once the
+     * last service object using it is gone.  This method may only be called from within
+     * {@link #newService(String, Dictionary)}.
+     *
+     * @param resources the shared resource registry
+     * @param key       the resource key, typically derived from the configuration
+     * @param <K>       the key type
+     * @param <R>       the resource type
+     * @return the resource
+     * @throws ConfigurationException if the resource cannot be opened
+     */
+    protected <K, R> R share(SharedResources<K, R> resources, K key) throws ConfigurationException {
+        final List<SharedResources.Lease<?>> leases = CREATION_LEASES.get();
+        Validate.validState(leases != null, "Shared resources may only be acquired while creating a service object.");
+        final SharedResources.Lease<R> lease = resources.acquire(key);
+        leases.add(lease);
+        return lease.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ServiceRegistration<T> registerLazily(LazyService lazyService, Dictionary<String, ?> serviceProperties) {
+        return (ServiceRegistration<T>) bundleContext.registerService(serviceType.getName(), lazyService, serviceProperties);
+    }
+
+    private void debounce(ScheduledExecutorService timer, Duration window, String pid, String description, ConfigurationTask task) {
+        debounced.compute(pid, (key, existing) -> {
+            final Debounced entry = existing == null ? new Debounced(window) : existing;
+            entry.description = description;
+            entry.task = task;
+            entry.events++;
+            entry.lastEvent = System.nanoTime();
+            if (existing == null) {
+                timer.schedule(() -> flush(timer, pid), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return entry;
+        });
+    }
+
+    private void flush(ScheduledExecutorService timer, String pid) {
+        final Debounced entry = debounced.get(pid);
+        if (entry == null) {
+            return;
+        }
+        final long remaining = entry.lastEvent + entry.window.toNanos() - System.nanoTime();
+        if (remaining > 0) {
+            timer.schedule(() -> flush(timer, pid), remaining, TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (debounced.remove(pid, entry)) {
+            LOGGER.info("Applying the last of {} configuration event(s) received for pid \"{}\" within {}.", entry.events, pid, entry.window);
+            final Executor target = executor;
+            submit(target == null ? timer : target, pid, entry.description, entry.task).whenComplete((result, error) -> {
+                if (error == null) {
+                    entry.completion.complete(null);
+                } else {
+                    entry.completion.completeExceptionally(error);
+                }
+            });
+        }
+    }
+
+    /**
+     * Performs the task on the calling thread, but only once any work already pending for the pid (from a
+     * reconciliation, say) has been performed, so that synchronous calls are serialized with it.
+     */
+    private <E extends Exception> void applyNow(String pid, SynchronousTask<E> task) throws E {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final CompletableFuture<Void> previous = pending.put(pid, result);
+        if (previous != null) {
+            previous.handle((ignored, error) -> null).join();
+        }
+        try {
+            task.run();
+            pending.remove(pid, result);
+            result.complete(null);
+        } catch (Exception e) {
+            pending.remove(pid, result);
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Void> submit(Executor target, String pid, String description, ConfigurationTask task) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final CompletableFuture<Void> previous = pending.put(pid, result);
+        (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous).whenComplete((ignored, error) -> {
+            try {
+                target.execute(() -> perform(pid, description, task, result));
+            } catch (RejectedExecutionException e) {
+                LOGGER.error("Unable to {} service for pid \"{}\"; the executor rejected the work.", description, pid, e);
+                pending.remove(pid, result);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private void perform(String pid, String description, ConfigurationTask task, CompletableFuture<Void> result) {
+        try {
+            task.run();
+            pending.remove(pid, result);
+            result.complete(null);
+        } catch (ConfigurationException | RuntimeException e) {
+            LOGGER.error("Unable to {} service for pid \"{}\".", description, pid, e);
+            pending.remove(pid, result);
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Subclasses can override this method in order to apply a changed configuration to an existing service instance
+     * without recreating it.  If this method returns true, the service registration's properties are updated using
+     * {@link #serviceProperties(Dictionary)}; otherwise the service instance is replaced as usual.  The default
+     * implementation returns false.
+     *
+     * @param pid       the service pid
+     * @param service   the existing service instance
+     * @param oldConfig the configuration the service instance was created with (or last reconfigured with)
+     * @param newConfig the new configuration
+     * @return true if the new configuration was applied to the existing service instance
+     * @throws ConfigurationException if the new configuration properties are invalid/incomplete
+     */
+    protected boolean reconfigure(String pid, T service, Dictionary<String, ?> oldConfig, Dictionary<String, ?> newConfig) throws ConfigurationException {
+        return false;
+    }
+
+    private boolean reconfigureInPlace(String pid, ManagedInstance current, Dictionary<String, ?> newConfig) throws ConfigurationException {
+        final boolean reconfigured = current.lazy == null ?
+                reconfigure(pid, current.service, current.properties, newConfig) :
+                current.lazy.reconfigure(current.properties, newConfig);
+        if (!reconfigured) {
+            return false;
+        }
+        final Dictionary<String, ?> serviceProperties = serviceProperties(newConfig);
+        LOGGER.info("Reconfigured service object for pid \"{}\" in place; updating service properties to \n{}...", pid, serviceProperties);
+        current.registration.setProperties(serviceProperties);
+        return true;
+    }
+
+    private void retire(String pid, ManagedInstance instance) {
+        LOGGER.info("Unregistering OSGi service for pid \"{}\"...", pid);
+        try {
+            instance.registration.unregister();
+        } catch (IllegalStateException e) {
+            LOGGER.debug("OSGi service for pid \"{}\" was already unregistered.", pid);
+        }
+        final T service = instance.lazy == null ? instance.service : instance.lazy.dispose();
+        final List<SharedResources.Lease<?>> leases = instance.lazy == null ? instance.leases : instance.lazy.takeLeases();
+        if (service == null) {
+            LOGGER.info("Service object for pid \"{}\" was never created (or was evicted); nothing to destroy.", pid);
+            return;
+        }
+        if (service instanceof Drainable) {
+            final Drainable drainable = (Drainable) service;
+            LOGGER.info("Draining {} call(s) in flight on service object for pid \"{}\"...", drainable.getInFlight(), pid);
+            if (!drainable.drain(drainTimeout)) {
+                LOGGER.warn("Timed out after {} waiting for {} call(s) in flight on service object for pid \"{}\".", drainTimeout, drainable.getInFlight(), pid);
+            }
+        }
+        LOGGER.info("Destroying service object for pid \"{}\"...", pid);
+        destroy(pid, service);
+        releaseAll(leases);
+    }
+
     /**
      * Subclasses can override this method in order to free up any resources consumed by the service instance.  Default
      * implementation is a no-op.
@@ -168,4 +877,419 @@ public abstract class AbstractManagedServiceFactory<T> implements ManagedService
     protected Dictionary<String, ?> serviceProperties(Dictionary<String, ?> configProperties) throws ConfigurationException {
         return new Hashtable<>();
     }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface ConfigurationTask {
+        void run() throws ConfigurationException;
+    }
+
+    /**
+     * A task performed by {@link #applyNow(String, SynchronousTask)}, which rethrows exactly what the task throws.
+     *
+     * @param <E> the checked exception type (or {@link RuntimeException} if none)
+     */
+    @FunctionalInterface
+    private interface SynchronousTask<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * The instruments used by a factory, looked up once so that recording never allocates.
+     */
+    private static final class Instruments {
+        private final Metrics.Counter created;
+        private final Metrics.Counter updated;
+        private final Metrics.Counter unchanged;
+        private final Metrics.Counter deleted;
+        private final Metrics.Counter failed;
+        private final Metrics.Timer newService;
+
+        private Instruments(Metrics metrics) {
+            this.created = metrics.counter("created");
+            this.updated = metrics.counter("updated");
+            this.unchanged = metrics.counter("unchanged");
+            this.deleted = metrics.counter("deleted");
+            this.failed = metrics.counter("failed");
+            this.newService = metrics.timer("newService");
+        }
+    }
+
+    private enum Change {
+        CREATE("create"), UPDATE("update"), DELETE("delete");
+
+        private final String description;
+
+        Change(String description) {
+            this.description = description;
+        }
+    }
+
+    private static final class ReconcileAction {
+        private final String pid;
+        private final Change change;
+        private final ConfigurationTask task;
+
+        private ReconcileAction(String pid, Change change, ConfigurationTask task) {
+            this.pid = pid;
+            this.change = change;
+            this.task = task;
+        }
+    }
+
+    private static final class ReconcileTally {
+        private final int unchanged;
+        private final Map<Change, AtomicInteger> counts = new EnumMap<>(Change.class);
+        private final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+        private ReconcileTally(int unchanged) {
+            this.unchanged = unchanged;
+            for (Change change : Change.values()) {
+                counts.put(change, new AtomicInteger());
+            }
+        }
+
+        private Void record(ReconcileAction action, Throwable error) {
+            if (error == null) {
+                counts.get(action.change).incrementAndGet();
+            } else {
+                failures.put(action.pid, error);
+            }
+            return null;
+        }
+
+        private ReconcileSummary summarize(Duration elapsed) {
+            return new ReconcileSummary(counts.get(Change.CREATE).get(), counts.get(Change.UPDATE).get(), counts.get(Change.DELETE).get(), unchanged, new TreeMap<>(failures), elapsed);
+        }
+    }
+
+    /**
+     * The outcome of {@link AbstractManagedServiceFactory#reconcile(Map, Executor, int)}.
+     */
+    public static final class ReconcileSummary {
+        private final int created;
+        private final int updated;
+        private final int deleted;
+        private final int unchanged;
+        private final Map<String, Throwable> failures;
+        private final Duration elapsed;
+
+        private ReconcileSummary(int created, int updated, int deleted, int unchanged, Map<String, Throwable> failures, Duration elapsed) {
+            this.created = created;
+            this.updated = updated;
+            this.deleted = deleted;
+            this.unchanged = unchanged;
+            this.failures = Collections.unmodifiableMap(failures);
+            this.elapsed = elapsed;
+        }
+
+        public int getCreated() {
+            return created;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Returns the errors of the changes which could not be applied, keyed by pid.
+         *
+         * @return the failures
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Reconciled %d pid(s) in %s: %d created, %d updated, %d deleted, %d unchanged, %d failed%s.",
+                    created + updated + deleted + unchanged + failures.size(), elapsed, created, updated, deleted, unchanged, failures.size(),
+                    failures.isEmpty() ? "" : " " + failures.keySet());
+        }
+    }
+
+    /**
+     * The last configuration event received for a pid within the debounce window.
+     */
+    private static final class Debounced {
+        private final Duration window;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile String description;
+        private volatile ConfigurationTask task;
+        private volatile int events;
+        private volatile long lastEvent;
+
+        private Debounced(Duration window) {
+            this.window = window;
+        }
+    }
+
+    /**
+     * The ledger entry for a pid, tracking where its service object is in its lifecycle.
+     */
+    private final class Lifecycle {
+        private final long created;
+        private volatile LifecycleState state = LifecycleState.CREATING;
+        private volatile long stateChanged = System.currentTimeMillis();
+        private volatile ManagedInstance instance;
+
+        private Lifecycle(long created) {
+            this.created = created;
+        }
+
+        private void activate(ManagedInstance instance) {
+            this.instance = instance;
+            transition(LifecycleState.ACTIVE);
+        }
+
+        private LifecycleStatus status(String pid) {
+            final ManagedInstance current = instance;
+            return new LifecycleStatus(pid, state, Instant.ofEpochMilli(created), Instant.ofEpochMilli(stateChanged), current == null ? null : current.warmUpTime);
+        }
+
+        private void transition(LifecycleState state) {
+            this.stateChanged = System.currentTimeMillis();
+            this.state = state;
+        }
+    }
+
+    /**
+     * A registered service object (or lazy service factory) along with the configuration it was created with.
+     */
+    private final class ManagedInstance {
+        private final ServiceRegistration<T> registration;
+        private final T service;
+        private final LazyService lazy;
+        private final List<SharedResources.Lease<?>> leases;
+        private final Dictionary<String, ?> properties;
+        private final ConfigurationFingerprint fingerprint;
+        private final Duration warmUpTime;
+
+        private ManagedInstance(ServiceRegistration<T> registration, T service, LazyService lazy, List<SharedResources.Lease<?>> leases, Dictionary<String, ?> properties, ConfigurationFingerprint fingerprint, Duration warmUpTime) {
+            this.registration = registration;
+            this.service = service;
+            this.lazy = lazy;
+            this.leases = leases;
+            this.warmUpTime = warmUpTime;
+            this.properties = copyOf(properties);
+            this.fingerprint = fingerprint;
+        }
+
+        private ManagedInstance reconfigured(Dictionary<String, ?> properties, ConfigurationFingerprint fingerprint) {
+            return new ManagedInstance(registration, service, lazy, leases, properties, fingerprint, warmUpTime);
+        }
+    }
+
+    /**
+     * Creates the service object for a pid on first use, and destroys it again once it has gone unused for longer than
+     * the idle timeout.
+     */
+    private final class LazyService implements ServiceFactory<T> {
+        private final String pid;
+        private Dictionary<String, ?> configProperties;
+        private T service;
+        private List<SharedResources.Lease<?>> leases = Collections.emptyList();
+        private int useCount;
+        private long lastReleased;
+        private boolean disposed;
+
+        private LazyService(String pid, Dictionary<String, ?> configProperties) {
+            this.pid = pid;
+            this.configProperties = copyOf(configProperties);
+        }
+
+        @Override
+        public synchronized T getService(Bundle bundle, ServiceRegistration<T> registration) {
+            if (disposed) {
+                return null;
+            }
+            if (service == null) {
+                LOGGER.info("Creating service object for pid \"{}\" on first use by bundle {}...", pid, bundle.getSymbolicName());
+                final List<SharedResources.Lease<?>> created = new ArrayList<>();
+                try {
+                    service = create(pid, configProperties, created);
+                    leases = created;
+                } catch (ConfigurationException e) {
+                    LOGGER.error("Unable to create service object for pid \"{}\".", pid, e);
+                    return null;
+                }
+            }
+            useCount++;
+            return service;
+        }
+
+        @Override
+        public void ungetService(Bundle bundle, ServiceRegistration<T> registration, T serviceObject) {
+            synchronized (this) {
+                if (--useCount > 0 || disposed) {
+                    return;
+                }
+                lastReleased = System.nanoTime();
+            }
+            final Duration timeout = idleTimeout;
+            final ScheduledExecutorService target = scheduler;
+            if (timeout != null && target != null) {
+                target.schedule(() -> evictIfIdle(timeout), timeout.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private synchronized T dispose() {
+            disposed = true;
+            final T disposedService = service;
+            service = null;
+            return disposedService;
+        }
+
+        private void evictIfIdle(Duration timeout) {
+            final T evicted;
+            final List<SharedResources.Lease<?>> evictedLeases;
+            synchronized (this) {
+                if (disposed || service == null || useCount > 0 || System.nanoTime() - lastReleased < timeout.toNanos()) {
+                    return;
+                }
+                evicted = service;
+                service = null;
+                evictedLeases = takeLeases();
+            }
+            LOGGER.info("Destroying service object for pid \"{}\" after being idle for {}...", pid, timeout);
+            destroy(pid, evicted);
+            releaseAll(evictedLeases);
+        }
+
+        private synchronized List<SharedResources.Lease<?>> takeLeases() {
+            final List<SharedResources.Lease<?>> taken = leases;
+            leases = Collections.emptyList();
+            return taken;
+        }
+
+        private synchronized boolean reconfigure(Dictionary<String, ?> oldConfig, Dictionary<String, ?> newConfig) throws ConfigurationException {
+            if (disposed) {
+                return false;
+            }
+            if (service == null || AbstractManagedServiceFactory.this.reconfigure(pid, service, oldConfig, newConfig)) {
+                configProperties = copyOf(newConfig);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The lifecycle states of a pid's service object.
+     */
+    public enum LifecycleState {
+        /**
+         * The service object is being created and registered.
+         */
+        CREATING,
+
+        /**
+         * The service object is registered.
+         */
+        ACTIVE,
+
+        /**
+         * A replacement service object is being registered (see {@link UpdateStrategy#SWAP}) and the current one is
+         * being retired.
+         */
+        SWAPPING,
+
+        /**
+         * The service object is being unregistered and destroyed.
+         */
+        DESTROYING
+    }
+
+    /**
+     * A point-in-time view of the lifecycle of a pid's service object.
+     */
+    public static final class LifecycleStatus {
+        private final String pid;
+        private final LifecycleState state;
+        private final Instant created;
+        private final Instant stateChanged;
+        private final Duration warmUpTime;
+
+        private LifecycleStatus(String pid, LifecycleState state, Instant created, Instant stateChanged, Duration warmUpTime) {
+            this.pid = pid;
+            this.state = state;
+            this.created = created;
+            this.warmUpTime = warmUpTime;
+            this.stateChanged = stateChanged;
+        }
+
+        /**
+         * Returns how long ago the pid's first service object was created.  The age spans reconfigurations, whether
+         * the service object was reconfigured in place, swapped or replaced; it only restarts once the pid is deleted.
+         *
+         * @return the age
+         */
+        public Duration getAge() {
+            return Duration.between(created, Instant.now());
+        }
+
+        public Instant getCreated() {
+            return created;
+        }
+
+        public String getPid() {
+            return pid;
+        }
+
+        public LifecycleState getState() {
+            return state;
+        }
+
+        public Instant getStateChanged() {
+            return stateChanged;
+        }
+
+        /**
+         * Returns how long the current service object spent in its warm-up phase.
+         *
+         * @return the warm-up time, or null if the service object was not warmed up
+         */
+        public Duration getWarmUpTime() {
+            return warmUpTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[%s for %s]", pid, state, getAge());
+        }
+    }
+
+    /**
+     * The strategy used when the configuration of an existing pid is updated.
+     */
+    public enum UpdateStrategy {
+        /**
+         * Unregister and destroy the existing service object before creating and registering the new one.  The service
+         * is briefly unavailable during the update.
+         */
+        REPLACE,
+
+        /**
+         * Create and register the new service object first, then unregister the existing one and, if it implements
+         * {@link Drainable}, wait for the calls in flight on it to drain (see
+         * {@link AbstractManagedServiceFactory#setDrainTimeout(Duration)}) before destroying it.  Service objects are
+         * registered as they are; they track their own calls in flight (see {@link CallsInFlight}).
+         */
+        SWAP
+    }
 }
\ No newline at end of file
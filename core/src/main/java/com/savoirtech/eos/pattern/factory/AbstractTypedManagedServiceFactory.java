@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import com.savoirtech.eos.util.TypeVariableUtils;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.cm.ConfigurationException;
+
+import java.util.Dictionary;
+
+/**
+ * Superclass for {@link AbstractManagedServiceFactory} implementations which consume their configuration through a
+ * typed configuration interface (see {@link ConfigurationBinding}) rather than a raw dictionary.
+ *
+ * @param <T> the service type
+ * @param <C> the configuration interface type
+ */
+public abstract class AbstractTypedManagedServiceFactory<T, C> extends AbstractManagedServiceFactory<T> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final ConfigurationBinding<C> binding;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public AbstractTypedManagedServiceFactory(BundleContext bundleContext) {
+        super(bundleContext);
+        this.binding = ConfigurationBinding.of(TypeVariableUtils.getTypeVariableBinding(getClass(), AbstractTypedManagedServiceFactory.class, 1));
+    }
+
+    public AbstractTypedManagedServiceFactory(BundleContext bundleContext, Class<T> serviceType, Class<C> configType) {
+        super(bundleContext, serviceType);
+        this.binding = ConfigurationBinding.of(configType);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Abstract Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a new service instance using the typed configuration.
+     *
+     * @param pid    the service pid
+     * @param config the configuration
+     * @return a new instance of the service type
+     * @throws ConfigurationException if the configuration is invalid
+     */
+    protected abstract T newService(String pid, C config) throws ConfigurationException;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    protected Class<C> getConfigType() {
+        return binding.getConfigType();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    protected final T newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+        return newService(pid, binding.bind(configProperties));
+    }
+}
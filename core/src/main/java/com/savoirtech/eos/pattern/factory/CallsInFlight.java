@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.savoirtech.eos.pattern.factory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the calls in flight on a service object, so that the object can be "drained" before it is destroyed.  A
+ * service object which wants to be drained implements {@link Drainable} by delegating to an instance of this class,
+ * and brackets the work of each of its methods with {@link #enter()} and {@link #exit()}:
+ * <pre>
+ * private final CallsInFlight calls = new CallsInFlight();
+ *
+ * public String sayHello(String name) {
+ *     calls.enter();
+ *     try {
+ *         return String.format(pattern, name);
+ *     } finally {
+ *         calls.exit();
+ *     }
+ * }
+ *
+ * public boolean drain(Duration timeout) {
+ *     return calls.drain(timeout);
+ * }
+ * </pre>
+ * Entering and exiting a call costs an atomic increment and decrement; nothing is allocated.
+ */
+public final class CallsInFlight implements Drainable {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean draining;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Drainable Implementation
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Waits for the calls in flight to complete.  Callers should make sure no new callers can obtain the service
+     * (by unregistering it) before draining.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if all calls completed, false if the timeout elapsed first
+     */
+    @Override
+    public boolean drain(Duration timeout) {
+        draining = true;
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (this) {
+            while (inFlight.get() > 0) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return inFlight.get() == 0;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Records the start of a call.  Every call to this method must be matched by a call to {@link #exit()}, typically
+     * in a finally block.
+     */
+    public void enter() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records the end of a call.
+     */
+    public void exit() {
+        if (inFlight.decrementAndGet() == 0 && draining) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+}
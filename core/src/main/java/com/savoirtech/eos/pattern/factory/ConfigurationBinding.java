@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import com.savoirtech.eos.util.Conversions;
+import org.apache.commons.lang3.Validate;
+import org.osgi.service.cm.ConfigurationException;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Binds configuration dictionaries to a typed configuration interface, in the spirit of Declarative Services
+ * component property types.  Each method of the interface maps to a configuration property:
+ * <pre>
+ * public interface HelloConfig {
+ *     &#64;ConfigurationProperty(defaultValue = "Hello, %s!")
+ *     String greetingPattern();
+ *     Duration cache_ttl();           // property "cache.ttl", required (for example "30s" or "PT30S")
+ * }
+ * </pre>
+ * Property names are derived from method names as in Declarative Services (<code>_</code> becomes <code>.</code>,
+ * <code>__</code> becomes <code>_</code> and <code>$$</code> becomes <code>$</code>), unless overridden using
+ * {@link ConfigurationProperty}.  Annotation types may declare their defaults directly; plain interfaces use
+ * {@link ConfigurationProperty#defaultValue()}.  A method without a default is required.  Supported return types are
+ * String, boolean, int, long, {@link Duration}, enums, {@link List} (of strings) and String[]; since annotation members
+ * cannot be {@link Duration}s or {@link List}s, those are only available to plain interfaces.
+ * <p>
+ * The binding (including one converter and the converted default value per method) is created once per interface
+ * and cached; binding a dictionary converts each property exactly once and reports all violations together.
+ *
+ * @param <C> the configuration interface type
+ */
+public final class ConfigurationBinding<C> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final ClassValue<ConfigurationBinding<?>> BINDINGS = new ClassValue<ConfigurationBinding<?>>() {
+        @Override
+        protected ConfigurationBinding<?> computeValue(Class<?> type) {
+            return new ConfigurationBinding<>(type);
+        }
+    };
+
+    private final Class<C> configType;
+    private final Property[] properties;
+    private final Map<Method, Integer> indexes = new HashMap<>();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the (cached) binding for a configuration interface.
+     *
+     * @param configType the configuration interface
+     * @param <C>        the configuration interface type
+     * @return the binding
+     * @throws IllegalArgumentException if the type is not an interface or declares unsupported methods
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> ConfigurationBinding<C> of(Class<C> configType) {
+        return (ConfigurationBinding<C>) BINDINGS.get(configType);
+    }
+
+    static String propertyName(String methodName) {
+        final StringBuilder name = new StringBuilder(methodName.length());
+        for (int i = 0; i < methodName.length(); i++) {
+            final char c = methodName.charAt(i);
+            final boolean doubled = i + 1 < methodName.length() && methodName.charAt(i + 1) == c;
+            if (c == '$') {
+                if (doubled) {
+                    name.append('$');
+                    i++;
+                }
+            } else if (c == '_') {
+                name.append(doubled ? '_' : '.');
+                if (doubled) {
+                    i++;
+                }
+            } else {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    private static Function<Object, Object> converterFor(Method method) {
+        final Class<?> type = method.getReturnType();
+        if (type == String.class) {
+            return String::valueOf;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return Conversions::toBoolean;
+        }
+        if (type == int.class || type == Integer.class) {
+            return Conversions::toInt;
+        }
+        if (type == long.class || type == Long.class) {
+            return Conversions::toLong;
+        }
+        if (type == Duration.class) {
+            return Conversions::toDuration;
+        }
+        if (type.isEnum()) {
+            return value -> toEnum(value, type);
+        }
+        if (type == List.class) {
+            return Conversions::toList;
+        }
+        if (type == String[].class) {
+            return value -> Conversions.toList(value).toArray(new String[0]);
+        }
+        throw new IllegalArgumentException(String.format("Configuration method %s has unsupported return type %s.", method, type.getName()));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object toEnum(Object value, Class<?> enumType) {
+        return Conversions.toEnum(value, (Class) enumType);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    private ConfigurationBinding(Class<C> configType) {
+        Validate.isTrue(configType.isInterface(), "Configuration type %s is not an interface.", configType.getName());
+        this.configType = configType;
+        final List<Property> bound = new ArrayList<>();
+        for (Method method : configType.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Annotation.class) {
+                continue;
+            }
+            Validate.isTrue(!method.isDefault(), "Configuration method %s must not be a default method.", method);
+            Validate.isTrue(method.getParameterCount() == 0, "Configuration method %s must not take parameters.", method);
+            indexes.put(method, bound.size());
+            bound.add(new Property(method));
+        }
+        this.properties = bound.toArray(new Property[bound.size()]);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public Class<C> getConfigType() {
+        return configType;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Binds the configuration properties to a new instance of the configuration interface.
+     *
+     * @param configProperties the configuration properties
+     * @return the configuration instance
+     * @throws ConfigurationException if any properties are missing or cannot be converted (all of them are reported)
+     */
+    public C bind(Dictionary<String, ?> configProperties) throws ConfigurationException {
+        final Object[] values = new Object[properties.length];
+        List<String> names = null;
+        List<String> reasons = null;
+        for (int i = 0; i < properties.length; i++) {
+            final Property property = properties[i];
+            final Object raw = configProperties == null ? null : configProperties.get(property.name);
+            try {
+                values[i] = property.value(raw);
+            } catch (IllegalArgumentException e) {
+                if (names == null) {
+                    names = new ArrayList<>();
+                    reasons = new ArrayList<>();
+                }
+                names.add(property.name);
+                reasons.add(e.getMessage());
+            }
+        }
+        if (names != null) {
+            throw new ConfigurationException(String.join(", ", names), String.join(" ", reasons));
+        }
+        return configType.cast(Proxy.newProxyInstance(configType.getClassLoader(), new Class<?>[]{configType}, new BoundConfiguration(values)));
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final class Property {
+        private final String name;
+        private final Function<Object, Object> converter;
+        private final Object defaultValue;
+
+        private Property(Method method) {
+            final ConfigurationProperty annotation = method.getAnnotation(ConfigurationProperty.class);
+            this.name = annotation == null || annotation.name().isEmpty() ? propertyName(method.getName()) : annotation.name();
+            this.converter = converterFor(method);
+            Object declaredDefault = method.getDefaultValue();
+            if (annotation != null && annotation.defaultValue().length > 0) {
+                final String[] defaults = annotation.defaultValue();
+                final Class<?> type = method.getReturnType();
+                declaredDefault = type == List.class || type.isArray() ? defaults : defaults[0];
+            }
+            this.defaultValue = declaredDefault == null ? null : converter.apply(declaredDefault);
+        }
+
+        private Object value(Object raw) {
+            if (raw != null) {
+                return converter.apply(raw);
+            }
+            if (defaultValue == null) {
+                throw new IllegalArgumentException(String.format("Configuration property %s is required.", name));
+            }
+            return defaultValue;
+        }
+    }
+
+    private final class BoundConfiguration implements InvocationHandler {
+        private final Object[] values;
+
+        private BoundConfiguration(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Integer index = indexes.get(method);
+            if (index != null) {
+                final Object value = values[index];
+                return value instanceof String[] ? ((String[]) value).clone() : value;
+            }
+            switch (method.getName()) {
+                case "annotationType":
+                    return configType;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return toString();
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+            }
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder(configType.getSimpleName()).append('[');
+            for (int i = 0; i < properties.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                final Object value = values[i];
+                sb.append(properties[i].name).append('=').append(value instanceof String[] ? Arrays.toString((String[]) value) : value);
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A normalized, comparable form of a configuration dictionary.  "Volatile" keys (those which change without the
+ * configuration meaningfully changing) are excluded, and array/collection values are compared element by element.
+ */
+final class ConfigurationFingerprint {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final Map<String, Object> values;
+    private final int hash;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    static ConfigurationFingerprint of(Dictionary<String, ?> properties, Set<String> ignoredKeys) {
+        final Map<String, Object> values = new TreeMap<>();
+        if (properties != null) {
+            for (Enumeration<String> keys = properties.keys(); keys.hasMoreElements(); ) {
+                final String key = keys.nextElement();
+                if (!ignoredKeys.contains(key)) {
+                    values.put(key, normalize(properties.get(key)));
+                }
+            }
+        }
+        return new ConfigurationFingerprint(Collections.unmodifiableMap(values));
+    }
+
+    private static Object normalize(Object value) {
+        if (value != null && value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            final List<Object> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(normalize(Array.get(value, i)));
+            }
+            return list;
+        }
+        if (value instanceof Collection) {
+            final List<Object> list = new ArrayList<>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                list.add(normalize(element));
+            }
+            return list;
+        }
+        return value;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    private ConfigurationFingerprint(Map<String, Object> values) {
+        this.values = values;
+        this.hash = values.hashCode();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Canonical Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigurationFingerprint)) {
+            return false;
+        }
+        final ConfigurationFingerprint other = (ConfigurationFingerprint) o;
+        return hash == other.hash && values.equals(other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customizes how a method of a configuration interface (see {@link ConfigurationBinding}) is bound to a configuration
+ * property.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConfigurationProperty {
+    /**
+     * The configuration property name.  If empty, the name is derived from the method name.
+     *
+     * @return the property name
+     */
+    String name() default "";
+
+    /**
+     * The default value(s), used when the configuration property is missing.  If empty, the property is required.
+     * Multiple values are only meaningful for list/array typed methods.
+     *
+     * @return the default value(s)
+     */
+    String[] defaultValue() default {};
+}
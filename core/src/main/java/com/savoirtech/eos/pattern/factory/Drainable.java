@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.savoirtech.eos.pattern.factory;
+
+import java.time.Duration;
+
+/**
+ * Implemented by service objects which track their calls in flight (typically using {@link CallsInFlight}), so that
+ * an {@link AbstractManagedServiceFactory} can wait for those calls to complete before destroying a retired service
+ * object.
+ */
+public interface Drainable {
+    /**
+     * Waits for the calls in flight to complete.  The service object has already been unregistered when this
+     * method is called.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if all calls completed, false if the timeout elapsed first
+     */
+    boolean drain(Duration timeout);
+
+    /**
+     * Returns the number of calls in flight.
+     *
+     * @return the number of calls in flight
+     */
+    int getInFlight();
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import org.apache.commons.lang3.Validate;
+import org.osgi.service.cm.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A reference-counted registry of resources (connection pools, clients, etc.) shared by the service objects of an
+ * {@link AbstractManagedServiceFactory}.  Resources are keyed by a value derived from the configuration (a URL, for
+ * example); the first service object to acquire a key opens the resource, and the resource is closed once the last
+ * service object using it is destroyed.  Within {@link AbstractManagedServiceFactory#newService(String, java.util.Dictionary)},
+ * use {@link AbstractManagedServiceFactory#share(SharedResources, Object)} so that the resource is released
+ * automatically:
+ * <pre>
+ * private final SharedResources&lt;String, DataSource&gt; pools = SharedResources.of(url -&gt; createPool(url));
+ *
+ * protected Repository newService(String pid, Dictionary&lt;String, ?&gt; config) throws ConfigurationException {
+ *     return new JdbcRepository(share(pools, getProperty("url", config)));
+ * }
+ * </pre>
+ *
+ * @param <K> the key type
+ * @param <R> the resource type
+ */
+public final class SharedResources<K, R> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedResources.class);
+
+    private final ConcurrentMap<K, Entry<R>> entries = new ConcurrentHashMap<>();
+    private final Opener<K, R> opener;
+    private final Closer<R> closer;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates a registry of {@link AutoCloseable} resources.
+     *
+     * @param opener opens the resource for a key
+     * @param <K>    the key type
+     * @param <R>    the resource type
+     * @return the registry
+     */
+    public static <K, R extends AutoCloseable> SharedResources<K, R> of(Opener<K, R> opener) {
+        return new SharedResources<>(opener, AutoCloseable::close);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public SharedResources(Opener<K, R> opener, Closer<R> closer) {
+        this.opener = opener;
+        this.closer = closer;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Acquires the resource for a key, opening it if it is not already open.  The resource is opened outside of the
+     * registry's locks, so opening one resource may acquire another; concurrent callers for the same key wait for it
+     * to be opened rather than opening it twice.  The returned lease must be closed when the resource is no longer
+     * needed.
+     *
+     * @param key the key
+     * @return the lease
+     * @throws ConfigurationException if the resource cannot be opened
+     * @throws IllegalStateException  if called for a key while opening the resource for that same key
+     */
+    public Lease<R> acquire(K key) throws ConfigurationException {
+        final Entry<R> created = new Entry<>();
+        final Entry<R> entry = entries.compute(key, (k, existing) -> {
+            if (existing != null) {
+                existing.references++;
+                return existing;
+            }
+            return created;
+        });
+        if (entry == created) {
+            open(key, entry);
+        } else {
+            Validate.validState(entry.opener != Thread.currentThread(), "Shared resource for key \"%s\" acquired while opening it.", key);
+        }
+        return new Lease<>(await(key, entry), () -> release(key, entry));
+    }
+
+    /**
+     * Returns the number of leases currently held on the resource for a key.
+     *
+     * @param key the key
+     * @return the number of leases (zero if the resource is not open)
+     */
+    public int getReferenceCount(K key) {
+        final Entry<R> entry = entries.get(key);
+        return entry == null ? 0 : entry.references;
+    }
+
+    /**
+     * Returns the number of open resources.
+     *
+     * @return the number of open resources
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private R await(K key, Entry<R> entry) throws ConfigurationException {
+        try {
+            return entry.opened.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof ConfigurationException) {
+                throw (ConfigurationException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(key, entry);
+            throw new ConfigurationException(null, String.format("Interrupted while waiting for shared resource for key \"%s\" to open.", key), e);
+        }
+    }
+
+    private void open(K key, Entry<R> entry) throws ConfigurationException {
+        LOGGER.info("Opening shared resource for key \"{}\"...", key);
+        try {
+            entry.opened.complete(opener.open(key));
+        } catch (ConfigurationException | RuntimeException | Error e) {
+            entries.remove(key, entry);
+            entry.opened.completeExceptionally(e);
+            throw e;
+        } finally {
+            entry.opener = null;
+        }
+    }
+
+    private void release(K key, Entry<R> entry) {
+        entries.computeIfPresent(key, (k, current) -> {
+            if (current == entry && --entry.references == 0) {
+                entry.closed = true;
+                return null;
+            }
+            return current;
+        });
+        if (entry.closed) {
+            LOGGER.info("Closing shared resource for key \"{}\"...", key);
+            try {
+                closer.close(entry.opened.getNow(null));
+            } catch (Exception e) {
+                LOGGER.error("Unable to close shared resource for key \"{}\".", key, e);
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Opens the resource for a key.
+     *
+     * @param <K> the key type
+     * @param <R> the resource type
+     */
+    @FunctionalInterface
+    public interface Opener<K, R> {
+        R open(K key) throws ConfigurationException;
+    }
+
+    /**
+     * Closes a resource once it is no longer used.
+     *
+     * @param <R> the resource type
+     */
+    @FunctionalInterface
+    public interface Closer<R> {
+        void close(R resource) throws Exception;
+    }
+
+    /**
+     * A counted reference to a shared resource.  Closing the lease (more than once is harmless) releases the
+     * reference.
+     *
+     * @param <R> the resource type
+     */
+    public static final class Lease<R> implements AutoCloseable {
+        private final R resource;
+        private final Runnable releaser;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(R resource, Runnable releaser) {
+            this.resource = resource;
+            this.releaser = releaser;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                releaser.run();
+            }
+        }
+
+        public R get() {
+            return resource;
+        }
+    }
+
+    /**
+     * The registry entry for a key, which is published before its resource is opened.
+     */
+    private static final class Entry<R> {
+        private final CompletableFuture<R> opened = new CompletableFuture<>();
+        private volatile Thread opener = Thread.currentThread();
+        private volatile int references = 1;
+        private boolean closed;
+    }
+}
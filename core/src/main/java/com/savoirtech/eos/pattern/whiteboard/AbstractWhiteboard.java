@@ -16,13 +16,27 @@
 
 package com.savoirtech.eos.pattern.whiteboard;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
-import com.google.common.collect.MapMaker;
+import com.savoirtech.eos.metrics.Metrics;
+import com.savoirtech.eos.util.ConcurrentLongHashMap;
 import com.savoirtech.eos.util.ServiceProperties;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.SynchronousBundleListener;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
 import org.slf4j.Logger;
@@ -31,6 +45,14 @@ import org.slf4j.LoggerFactory;
 /**
  * An abstract "whiteboard pattern" implementation which uses "tracking objects" to maintain the state of which services
  * are accepted by the whiteboard.
+ * <p>
+ * Tracked services are also indexed by the id of the bundle which registered them (keyed by primitive ids, so that
+ * tracking a service neither boxes its id nor allocates an index entry for it), which is what makes bulk eviction (see
+ * {@link #setEvictOnBundleStop(boolean)}) possible.  Evicting a bundle's services detaches the bundle's partition in
+ * one step, but still claims each of its services individually: one acquisition of the service's own lock and one
+ * brief acquisition of the event lock per service, so that eviction never races with a modification or removal of the
+ * same service.  What eviction saves is the subclass work, since subclasses are notified once per bundle (see
+ * {@link #removeServices(Bundle, List)}) rather than once per service.
  *
  * @param <S> the service type
  * @param <T> the tracking object type
@@ -40,12 +62,21 @@ public abstract class AbstractWhiteboard<S, T> {
 // Fields
 //----------------------------------------------------------------------------------------------------------------------
 
+    private static final int PARTITION_EXPECTED_ITEMS = 4;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ServiceTracker<S, S> serviceTracker;
-    private final Map<Long, T> trackingObjects = new MapMaker().concurrencyLevel(5).makeMap();
+    private final ConcurrentLongHashMap<TrackedService<S, T>> trackingObjects;
     private final BundleContext bundleContext;
     private final Class<S> serviceType;
     private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicLong version = new AtomicLong();
+    private final List<WhiteboardListener<S>> listeners = new CopyOnWriteArrayList<>();
+    private final Object eventLock = new Object();
+    private final ConcurrentLongHashMap<ConcurrentLongHashMap<TrackedService<S, T>>> partitions = new ConcurrentLongHashMap<>();
+    private final SynchronousBundleListener bundleListener = new BundleStopListener();
+    private volatile Instruments instruments = new Instruments(Metrics.NONE);
+    private volatile boolean evictOnBundleStop;
 
 //----------------------------------------------------------------------------------------------------------------------
 // Constructors
@@ -59,11 +90,50 @@ public abstract class AbstractWhiteboard<S, T> {
      * @param serviceType   the service type
      */
     protected AbstractWhiteboard(BundleContext bundleContext, Class<S> serviceType) {
+        this(bundleContext, serviceType, ConcurrentLongHashMap.DEFAULT_EXPECTED_ITEMS);
+    }
+
+    /**
+     * Constructs a new AbstractWhiteboard which tracks service of the prescribed service type, sizing its internal
+     * tracking table to hold the expected number of services without resizing.
+     *
+     * @param bundleContext        the bundle context
+     * @param serviceType          the service type
+     * @param expectedServiceCount the expected number of services (a sizing hint only)
+     */
+    protected AbstractWhiteboard(BundleContext bundleContext, Class<S> serviceType, int expectedServiceCount) {
         this.bundleContext = bundleContext;
         this.serviceType = serviceType;
+        this.trackingObjects = new ConcurrentLongHashMap<>(expectedServiceCount);
         this.serviceTracker = new ServiceTracker<>(bundleContext, serviceType, new TrackerCustomizer());
     }
 
+    /**
+     * Constructs a new AbstractWhiteboard which tracks only those services of the prescribed service type which match
+     * the given (LDAP-style) filter.
+     *
+     * @param bundleContext the bundle context
+     * @param serviceType   the service type
+     * @param filter        the filter, for example <code>(language=english)</code> (or null to track all services of
+     *                      the service type)
+     * @throws IllegalArgumentException if the filter is invalid
+     */
+    protected AbstractWhiteboard(BundleContext bundleContext, Class<S> serviceType, String filter) {
+        this.bundleContext = bundleContext;
+        this.serviceType = serviceType;
+        this.trackingObjects = new ConcurrentLongHashMap<>(ConcurrentLongHashMap.DEFAULT_EXPECTED_ITEMS);
+        if (filter == null) {
+            this.serviceTracker = new ServiceTracker<>(bundleContext, serviceType, new TrackerCustomizer());
+            return;
+        }
+        try {
+            final String objectClass = String.format("(%s=%s)", Constants.OBJECTCLASS, serviceType.getName());
+            this.serviceTracker = new ServiceTracker<>(bundleContext, bundleContext.createFilter(String.format("(&%s%s)", objectClass, filter)), new TrackerCustomizer());
+        } catch (InvalidSyntaxException e) {
+            throw new IllegalArgumentException(String.format("Invalid filter \"%s\".", filter), e);
+        }
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Abstract Methods
 //----------------------------------------------------------------------------------------------------------------------
@@ -87,6 +157,40 @@ public abstract class AbstractWhiteboard<S, T> {
      */
     protected abstract void removeService(S service, T tracked);
 
+    /**
+     * Called when the properties of a service tracked by this whiteboard are modified.  The object returned from this
+     * method replaces the previously tracked object.  The default implementation calls
+     * {@link #removeService(Object, Object)} followed by {@link #addService(Object, ServiceProperties)}, so the
+     * service is briefly absent from the subclass's structures; subclasses which must never expose that gap (or which
+     * can apply the change more cheaply) should override this method in order to swap the tracked object in one step.
+     * If this method returns null, the modified service is no longer accepted by this whiteboard, and the previously
+     * tracked object must already have been removed.
+     *
+     * @param service the service object
+     * @param tracked the currently tracked object
+     * @param props   the modified service properties
+     * @return the object to be "tracked" for this service from now on (or null)
+     */
+    protected T modifyService(S service, T tracked, ServiceProperties props) {
+        removeService(service, tracked);
+        return addService(service, props);
+    }
+
+    /**
+     * Called when all of the services registered by a bundle are removed at once, because the bundle is stopping (see
+     * {@link #setEvictOnBundleStop(boolean)}).  The default implementation calls
+     * {@link #removeService(Object, Object)} for each of them; subclasses whose structures are expensive to update
+     * should override this method in order to update them once.
+     *
+     * @param bundle   the stopping bundle
+     * @param removals the removed services (in service id order)
+     */
+    protected void removeServices(Bundle bundle, List<Removal<S, T>> removals) {
+        for (Removal<S, T> removal : removals) {
+            removeService(removal.getService(), removal.getTracked());
+        }
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Getter/Setter Methods
 //----------------------------------------------------------------------------------------------------------------------
@@ -103,10 +207,139 @@ public abstract class AbstractWhiteboard<S, T> {
         return serviceType;
     }
 
+    public boolean isEvictOnBundleStop() {
+        return evictOnBundleStop;
+    }
+
+    /**
+     * Enables bulk eviction, in which all of the services registered by a bundle are removed from this whiteboard in a
+     * single operation as soon as the bundle starts stopping, rather than one at a time as the framework unregisters
+     * them.  Subclasses are notified once (see {@link #removeServices(Bundle, List)}) and listeners receive a
+     * {@link WhiteboardEvent.Type#REMOVED} event for each service.  Note that the services are removed before the
+     * stopping bundle's activator runs, so they are no longer available to this whiteboard's clients during that
+     * time.
+     *
+     * @param evictOnBundleStop whether to evict a stopping bundle's services in bulk
+     */
+    public void setEvictOnBundleStop(boolean evictOnBundleStop) {
+        this.evictOnBundleStop = evictOnBundleStop;
+    }
+
+    /**
+     * Sets the metrics used by this whiteboard (by default, nothing is recorded).  This whiteboard records the
+     * counters {@code added}, {@code modified}, {@code removed} and {@code rejected}, and the timer
+     * {@code addService}; subclasses may record more.  Subclasses which record their own instruments should override
+     * this method (calling the super implementation) in order to look them up.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        this.instruments = new Instruments(metrics);
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Other Methods
 //----------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Returns a future which completes once this whiteboard tracks at least the given number of services.
+     *
+     * @param minimumServiceCount the minimum number of services
+     * @return the readiness future
+     * @see #awaitReady(BooleanSupplier)
+     */
+    public CompletableFuture<Void> awaitReady(int minimumServiceCount) {
+        return awaitReady(() -> getServiceCount() >= minimumServiceCount);
+    }
+
+    /**
+     * Returns a future which completes once the given condition holds.  The condition is evaluated immediately and
+     * then after every change of this whiteboard, until it is satisfied or the future is cancelled.  When the condition
+     * becomes satisfied by a service event, the future is completed using the {@link ForkJoinPool#commonPool()} so
+     * that dependent stages never run on the thread delivering OSGi service events.  Note that the future records that
+     * the condition held at some point; it does not track whether it continues to hold.
+     *
+     * @param condition the readiness condition (must be cheap and side-effect free)
+     * @return the readiness future
+     */
+    public CompletableFuture<Void> awaitReady(BooleanSupplier condition) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final WhiteboardListener<S> listener = event -> {
+            if (!future.isDone() && condition.getAsBoolean()) {
+                ForkJoinPool.commonPool().execute(() -> future.complete(null));
+            }
+        };
+        addWhiteboardListener(listener);
+        future.whenComplete((result, error) -> removeWhiteboardListener(listener));
+        if (condition.getAsBoolean()) {
+            future.complete(null);
+        }
+        return future;
+    }
+
+    /**
+     * Registers a listener to be notified whenever a service is added to, modified within or removed from this
+     * whiteboard.
+     *
+     * @param listener the listener
+     */
+    public void addWhiteboardListener(WhiteboardListener<S> listener) {
+        addWhiteboardListener(listener, false);
+    }
+
+    /**
+     * Registers a listener to be notified whenever a service is added to, modified within or removed from this
+     * whiteboard.  If requested, the listener is first sent an {@link WhiteboardEvent.Type#ADDED} event (carrying the
+     * current version) for every service currently tracked.  The replay and the registration happen atomically with
+     * respect to changes of this whiteboard, so the listener neither misses nor sees duplicate events.
+     *
+     * @param listener the listener
+     * @param replay   whether to replay the currently tracked services to the listener
+     */
+    public void addWhiteboardListener(WhiteboardListener<S> listener, boolean replay) {
+        synchronized (eventLock) {
+            if (replay) {
+                final long currentVersion = version.get();
+                final List<TrackedService<S, T>> current = trackingObjects.values();
+                current.sort(Comparator.comparingLong(trackedService -> trackedService.props.getServiceId()));
+                for (TrackedService<S, T> trackedService : current) {
+                    notifyListener(listener, new WhiteboardEvent<>(WhiteboardEvent.Type.ADDED, trackedService.service, trackedService.props, currentVersion));
+                }
+            }
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a listener previously registered using {@link #addWhiteboardListener(WhiteboardListener)}.
+     *
+     * @param listener the listener
+     */
+    public void removeWhiteboardListener(WhiteboardListener<S> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the current version of this whiteboard.  The version starts at zero and is incremented every time a
+     * service is added, modified or removed, so consumers can cheaply detect whether a view they derived from this
+     * whiteboard is stale.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns true if this whiteboard has changed since the given version was observed.
+     *
+     * @param observedVersion a version previously returned by {@link #getVersion()}
+     * @return true if the whiteboard has changed
+     */
+    public boolean hasChangedSince(long observedVersion) {
+        return version.get() != observedVersion;
+    }
+
     /**
      * Returns the current number of services registered.
      *
@@ -122,6 +355,7 @@ public abstract class AbstractWhiteboard<S, T> {
     public void start() {
         if(started.compareAndSet(false, true)) {
             logger.info("Opening ServiceTracker to search for {} services...", serviceType.getCanonicalName());
+            bundleContext.addBundleListener(bundleListener);
             serviceTracker.open(true);
         } else {
             logger.warn("ServiceTracker already open, searching for {} services.", serviceType.getCanonicalName());
@@ -135,13 +369,221 @@ public abstract class AbstractWhiteboard<S, T> {
      */
     public void stop() {
         logger.info("Closing ServiceTracker searching for {} services...", serviceType.getCanonicalName());
+        bundleContext.removeBundleListener(bundleListener);
         serviceTracker.close();
     }
 
+    /**
+     * Removes all of the services registered by the given bundle.  The bundle's partition is detached from the
+     * per-bundle index in one step; each of its services is then claimed (in service id order) under its own lock,
+     * the subclass is notified once, and finally the listeners are notified.  Claiming a service costs one acquisition
+     * of its lock and one of the event lock, as does every other change of the tracking table; claims cannot be
+     * batched under a single event lock acquisition, since the event lock is always taken after a service's lock.
+     *
+     * @param bundle the bundle
+     */
+    void evict(Bundle bundle) {
+        final ConcurrentLongHashMap<TrackedService<S, T>> partition;
+        synchronized (eventLock) {
+            partition = partitions.remove(bundle.getBundleId());
+        }
+        if (partition == null) {
+            return;
+        }
+        // Once detached, the partition is never modified again (services modified concurrently are re-indexed in a
+        // new partition, and are claimed from the tracking table below).
+        final long[] serviceIds = partition.values().stream().mapToLong(trackedService -> trackedService.props.getServiceId()).sorted().toArray();
+        final List<Removal<S, T>> removals = new ArrayList<>(serviceIds.length);
+        for (long serviceId : serviceIds) {
+            final TrackedService<S, T> current = trackingObjects.get(serviceId);
+            if (current == null) {
+                continue;
+            }
+            synchronized (current.lock) {
+                final TrackedService<S, T> claimed;
+                synchronized (eventLock) {
+                    claimed = untrack(serviceId);
+                }
+                if (claimed != null) {
+                    removals.add(new Removal<>(claimed));
+                }
+            }
+        }
+        if (removals.isEmpty()) {
+            return;
+        }
+        logger.info("Evicting {} {} service(s) from stopping bundle {}.", removals.size(), serviceType.getSimpleName(), bundle.getSymbolicName());
+        try {
+            removeServices(bundle, Collections.unmodifiableList(removals));
+        } catch (RuntimeException e) {
+            logger.error("Unable to remove {} services of stopping bundle {}.", serviceType.getSimpleName(), bundle.getSymbolicName(), e);
+        }
+        synchronized (eventLock) {
+            for (Removal<S, T> removal : removals) {
+                fireEvent(WhiteboardEvent.Type.REMOVED, removal.service, removal.props);
+            }
+        }
+        final Instruments instruments = this.instruments;
+        for (Removal<S, T> removal : removals) {
+            bundleContext.ungetService(removal.props.getServiceReference());
+            instruments.removed.increment();
+        }
+    }
+
+    /**
+     * Adds a service to the tracking table and its bundle's partition.  Callers must hold the event lock, which also
+     * guards the creation and removal of partitions (so that a partition detached by {@link #evict(Bundle)} never
+     * gains a service).
+     */
+    private void track(TrackedService<S, T> trackedService) {
+        final long serviceId = trackedService.props.getServiceId();
+        final long bundleId = trackedService.props.getBundle().getBundleId();
+        trackingObjects.put(serviceId, trackedService);
+        ConcurrentLongHashMap<TrackedService<S, T>> partition = partitions.get(bundleId);
+        if (partition == null) {
+            partition = new ConcurrentLongHashMap<>(PARTITION_EXPECTED_ITEMS, 1);
+            partitions.put(bundleId, partition);
+        }
+        partition.put(serviceId, trackedService);
+    }
+
+    /**
+     * Removes a service from the tracking table and its bundle's partition.  Callers must hold the event lock.
+     */
+    private TrackedService<S, T> untrack(long serviceId) {
+        final TrackedService<S, T> removed = trackingObjects.remove(serviceId);
+        if (removed != null) {
+            final long bundleId = removed.props.getBundle().getBundleId();
+            final ConcurrentLongHashMap<TrackedService<S, T>> partition = partitions.get(bundleId);
+            if (partition != null && partition.remove(serviceId) != null && partition.isEmpty()) {
+                partitions.remove(bundleId);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Bumps the version and notifies the listeners.  Callers must hold the event lock and must already have updated
+     * the tracking table.
+     */
+    private void fireEvent(WhiteboardEvent.Type type, S service, ServiceProperties props) {
+        final long newVersion = version.incrementAndGet();
+        if (listeners.isEmpty()) {
+            return;
+        }
+        final WhiteboardEvent<S> event = new WhiteboardEvent<>(type, service, props, newVersion);
+        for (WhiteboardListener<S> listener : listeners) {
+            notifyListener(listener, event);
+        }
+    }
+
+    private T timedAddService(Instruments instruments, S service, ServiceProperties props) {
+        final long start = System.nanoTime();
+        try {
+            return addService(service, props);
+        } finally {
+            instruments.addService.record(System.nanoTime() - start);
+        }
+    }
+
+    private T timedModifyService(Instruments instruments, S service, T tracked, ServiceProperties props) {
+        final long start = System.nanoTime();
+        try {
+            return modifyService(service, tracked, props);
+        } finally {
+            instruments.addService.record(System.nanoTime() - start);
+        }
+    }
+
+    private void notifyListener(WhiteboardListener<S> listener, WhiteboardEvent<S> event) {
+        try {
+            listener.whiteboardChanged(event);
+        } catch (RuntimeException e) {
+            logger.error("Whiteboard listener {} failed to handle {}.", listener, event, e);
+        }
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Inner Classes
 //----------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * The instruments used by a whiteboard, looked up once so that recording never allocates.
+     */
+    private static final class Instruments {
+        private final Metrics.Counter added;
+        private final Metrics.Counter modified;
+        private final Metrics.Counter removed;
+        private final Metrics.Counter rejected;
+        private final Metrics.Timer addService;
+
+        private Instruments(Metrics metrics) {
+            this.added = metrics.counter("added");
+            this.modified = metrics.counter("modified");
+            this.removed = metrics.counter("removed");
+            this.rejected = metrics.counter("rejected");
+            this.addService = metrics.timer("addService");
+        }
+    }
+
+    /**
+     * A service removed by a bulk eviction (see {@link #removeServices(Bundle, List)}).
+     *
+     * @param <S> the service type
+     * @param <T> the tracking object type
+     */
+    public static final class Removal<S, T> {
+        private final S service;
+        private final ServiceProperties props;
+        private final T tracked;
+
+        private Removal(TrackedService<S, T> trackedService) {
+            this.service = trackedService.service;
+            this.props = trackedService.props;
+            this.tracked = trackedService.tracked;
+        }
+
+        public ServiceProperties getProps() {
+            return props;
+        }
+
+        public S getService() {
+            return service;
+        }
+
+        public T getTracked() {
+            return tracked;
+        }
+    }
+
+    private class BundleStopListener implements SynchronousBundleListener {
+        @Override
+        public void bundleChanged(BundleEvent event) {
+            if (event.getType() == BundleEvent.STOPPING && evictOnBundleStop) {
+                evict(event.getBundle());
+            }
+        }
+    }
+
+    /**
+     * A tracked service.  The lock is shared by all tracking objects for the same service (it is handed over when the
+     * service is modified), so that concurrent modifications and removals of a service are applied one at a time and a
+     * removed service can never be re-added by a modification which raced with its removal.
+     */
+    private static final class TrackedService<S, T> {
+        private final S service;
+        private final ServiceProperties props;
+        private final T tracked;
+        private final Object lock;
+
+        private TrackedService(S service, ServiceProperties props, T tracked, Object lock) {
+            this.service = service;
+            this.props = props;
+            this.tracked = tracked;
+            this.lock = lock;
+        }
+    }
+
     private class TrackerCustomizer implements ServiceTrackerCustomizer<S, S> {
 //----------------------------------------------------------------------------------------------------------------------
 // ServiceTrackerCustomizer Implementation
@@ -151,40 +593,85 @@ public abstract class AbstractWhiteboard<S, T> {
         @Override
         public S addingService(ServiceReference<S> reference) {
             final S service = bundleContext.getService(reference);
-            final ServiceProperties props = new ServiceProperties(reference);
-            final T tracked = addService(service, props);
+            if (service == null) {
+                // Unregistered while the event was in flight.
+                return null;
+            }
+            final ServiceProperties props = ServiceProperties.snapshot(reference);
+            final Instruments instruments = AbstractWhiteboard.this.instruments;
+            final T tracked = timedAddService(instruments, service, props);
             if (tracked == null) {
-                logger.warn("Rejected {} service {} from bundle {}.",serviceType.getSimpleName(), props.getServiceId(), reference.getBundle().getSymbolicName());
+                instruments.rejected.increment();
+                logger.warn("Rejected {} service {} from bundle {}.",serviceType.getSimpleName(), props.getServiceId(), props.getBundle().getSymbolicName());
                 bundleContext.ungetService(reference);
                 return null;
             } else {
-                logger.info("Accepted {} service {} (tracked by \"{}\") from bundle {}.", serviceType.getSimpleName(), props.getServiceId(), tracked, reference.getBundle().getSymbolicName());
-                trackingObjects.put(props.getServiceId(), tracked);
+                logger.info("Accepted {} service {} (tracked by \"{}\") from bundle {}.", serviceType.getSimpleName(), props.getServiceId(), tracked, props.getBundle().getSymbolicName());
+                synchronized (eventLock) {
+                    track(new TrackedService<>(service, props, tracked, new Object()));
+                    fireEvent(WhiteboardEvent.Type.ADDED, service, props);
+                }
+                instruments.added.increment();
                 return service;
             }
         }
 
         @Override
         public void modifiedService(ServiceReference<S> reference, S service) {
-            removedService(reference, service);
-            final ServiceProperties props = new ServiceProperties(reference);
-            final T tracked = addService(service, props);
-            if (tracked == null) {
-                logger.warn("Rejected modified {} service {} from bundle {}.", serviceType.getSimpleName(), props.getServiceId(), reference.getBundle().getSymbolicName());
-                serviceTracker.remove(reference);
-            } else {
-                logger.info("Accepted modified {} service {} (tracked by \"{}\") from bundle {}.", serviceType.getSimpleName(), props.getServiceId(), tracked, reference.getBundle().getSymbolicName());
-                trackingObjects.put(props.getServiceId(), tracked);
+            final ServiceProperties props = ServiceProperties.snapshot(reference);
+            final long serviceId = props.getServiceId();
+            final TrackedService<S, T> current = trackingObjects.get(serviceId);
+            if (current == null) {
+                return;
+            }
+            synchronized (current.lock) {
+                final TrackedService<S, T> previous = trackingObjects.get(serviceId);
+                if (previous == null) {
+                    // Removed while we were waiting for the lock.
+                    return;
+                }
+                final Instruments instruments = AbstractWhiteboard.this.instruments;
+                final T tracked = timedModifyService(instruments, service, previous.tracked, props);
+                if (tracked == null) {
+                    instruments.rejected.increment();
+                    logger.warn("Rejected modified {} service {} from bundle {}.", serviceType.getSimpleName(), serviceId, props.getBundle().getSymbolicName());
+                    synchronized (eventLock) {
+                        if (untrack(serviceId) != null) {
+                            fireEvent(WhiteboardEvent.Type.REMOVED, service, previous.props);
+                        }
+                    }
+                    bundleContext.ungetService(reference);
+                    serviceTracker.remove(reference);
+                } else {
+                    logger.info("Accepted modified {} service {} (tracked by \"{}\") from bundle {}.", serviceType.getSimpleName(), serviceId, tracked, props.getBundle().getSymbolicName());
+                    synchronized (eventLock) {
+                        track(new TrackedService<>(service, props, tracked, previous.lock));
+                        fireEvent(WhiteboardEvent.Type.MODIFIED, service, props);
+                    }
+                    instruments.modified.increment();
+                }
             }
         }
 
         @Override
         public void removedService(ServiceReference<S> reference, S service) {
-            final ServiceProperties props = new ServiceProperties(reference);
-            final T previouslyTracked = trackingObjects.remove(props.getServiceId());
-            if (previouslyTracked != null) {
-                removeService(service, previouslyTracked);
-                bundleContext.ungetService(reference);
+            final long serviceId = (Long) reference.getProperty(Constants.SERVICE_ID);
+            final TrackedService<S, T> current = trackingObjects.get(serviceId);
+            if (current == null) {
+                return;
+            }
+            synchronized (current.lock) {
+                final TrackedService<S, T> previous = trackingObjects.get(serviceId);
+                if (previous != null) {
+                    removeService(service, previous.tracked);
+                    synchronized (eventLock) {
+                        if (untrack(serviceId) != null) {
+                            fireEvent(WhiteboardEvent.Type.REMOVED, service, previous.props);
+                        }
+                    }
+                    bundleContext.ungetService(reference);
+                    instruments.removed.increment();
+                }
             }
         }
     }
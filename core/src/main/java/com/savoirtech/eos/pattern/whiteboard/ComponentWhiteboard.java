@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.savoirtech.eos.util.ServiceProperties;
+import org.apache.commons.lang3.Validate;
+import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A composite whiteboard which activates a component once all of its required services are present, and deactivates
+ * it when any of them goes away.  Each dependency is bound to the best matching service (highest service ranking,
+ * then lowest service id); the component is only restarted when the service bound to one of its dependencies
+ * changes, so services coming and going which are not bound (or property changes of bound services) do not disturb
+ * it.
+ * <p>
+ * The component is never activated or deactivated on the thread delivering the service event: that thread holds the
+ * dependency's event lock, and activators routinely register services which other whiteboards track, so running them
+ * there could deadlock.  Instead, each change is queued and the queue is drained serially, one change at a time, on an
+ * executor.  By default, that is a single (daemon) thread owned by this whiteboard, which is shut down when the
+ * whiteboard is stopped; a shared executor may be set instead (see {@link #setExecutor(Executor)}), so that
+ * independent components are activated in parallel.  Use {@link #awaitPending()} to find out when the queued changes
+ * have been applied.
+ *
+ * @param <C> the component type
+ */
+public class ComponentWhiteboard<C> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final Comparator<Binding<?>> ORDER = Comparator.<Binding<?>>comparingInt(binding -> binding.ranking).reversed().thenComparingLong(binding -> binding.serviceId);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final BundleContext bundleContext;
+    private final Function<Dependencies, ? extends C> activator;
+    private final Consumer<? super C> deactivator;
+    private final Map<String, Dependency<?>> dependencies = new LinkedHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final Object queueLock = new Object();
+    private boolean requested;
+    private boolean closed;
+    private CompletableFuture<Void> drained;
+    private ExecutorService defaultExecutor;
+    private volatile Executor executor;
+    private volatile Thread drainingThread;
+    private volatile C component;
+    private Map<String, Object> bindings = Collections.emptyMap();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Constructs a new ComponentWhiteboard.  Dependencies are declared using {@link #require(String, Class)} and
+     * {@link #require(String, Class, String)}, after which the whiteboard must be started (see {@link #start()}).
+     *
+     * @param bundleContext the bundle context
+     * @param activator     creates (and starts) the component once all dependencies are satisfied
+     * @param deactivator   stops the component once a dependency is lost (or the whiteboard is stopped)
+     */
+    public ComponentWhiteboard(BundleContext bundleContext, Function<Dependencies, ? extends C> activator, Consumer<? super C> deactivator) {
+        this.bundleContext = bundleContext;
+        this.activator = activator;
+        this.deactivator = deactivator;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the active component.
+     *
+     * @return the component, or null if it is not active
+     */
+    public C getComponent() {
+        return component;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor used to activate and deactivate the component (by default, a single thread owned by this
+     * whiteboard).  The component's changes are still applied one at a time.  Use {@link #awaitPending()} to find out
+     * when the pending work has been performed.  Passing null restores the default executor.
+     *
+     * @param executor the executor (or null)
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public boolean isActive() {
+        return component != null;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns a future which completes once the activation work pending at the time of the call (see
+     * {@link #setExecutor(Executor)}) has been performed.  If nothing is pending, the returned future is already
+     * complete.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> awaitPending() {
+        synchronized (queueLock) {
+            return drained == null ? CompletableFuture.completedFuture(null) : drained;
+        }
+    }
+
+    private void activate(Map<String, Object> services) {
+        try {
+            final C activated = activator.apply(new Dependencies(services));
+            if (activated != null) {
+                logger.info("Activated component with dependencies {}.", services.keySet());
+                bindings = services;
+                component = activated;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unable to activate component with dependencies {}.", services.keySet(), e);
+        }
+    }
+
+    private void deactivate() {
+        final C deactivated = component;
+        component = null;
+        bindings = Collections.emptyMap();
+        try {
+            deactivator.accept(deactivated);
+            logger.info("Deactivated component.");
+        } catch (RuntimeException e) {
+            logger.error("Unable to deactivate component.", e);
+        }
+    }
+
+    private void drain() {
+        drainingThread = Thread.currentThread();
+        try {
+            drainQueue();
+        } finally {
+            drainingThread = null;
+        }
+    }
+
+    private void drainQueue() {
+        while (true) {
+            final CompletableFuture<Void> completed;
+            synchronized (queueLock) {
+                if (requested) {
+                    requested = false;
+                    completed = null;
+                } else {
+                    completed = drained;
+                    drained = null;
+                }
+            }
+            if (completed != null) {
+                completed.complete(null);
+                return;
+            }
+            evaluate();
+        }
+    }
+
+    /**
+     * Compares the currently bound services to those the component was activated with, and deactivates and/or
+     * activates the component accordingly.  Only ever called while draining the queue, which happens one drain at a
+     * time and never while a dependency's lock is held.
+     */
+    private void evaluate() {
+        final Map<String, Object> services = new LinkedHashMap<>();
+        boolean satisfied = started.get();
+        for (Map.Entry<String, Dependency<?>> entry : dependencies.entrySet()) {
+            final Object service = entry.getValue().getBound();
+            if (service == null) {
+                satisfied = false;
+                break;
+            }
+            services.put(entry.getKey(), service);
+        }
+        if (component != null) {
+            if (satisfied && sameServices(bindings, services)) {
+                return;
+            }
+            deactivate();
+        }
+        if (satisfied) {
+            activate(services);
+        }
+    }
+
+    /**
+     * Declares a required service.
+     *
+     * @param name        the dependency name (see {@link Dependencies#get(String, Class)})
+     * @param serviceType the service type
+     * @param <S>         the service type
+     * @return this whiteboard
+     */
+    public <S> ComponentWhiteboard<C> require(String name, Class<S> serviceType) {
+        return require(name, serviceType, null);
+    }
+
+    /**
+     * Declares a required service, which must match the given (LDAP-style) filter.
+     *
+     * @param name        the dependency name (see {@link Dependencies#get(String, Class)})
+     * @param serviceType the service type
+     * @param filter      the filter (or null)
+     * @param <S>         the service type
+     * @return this whiteboard
+     * @throws IllegalArgumentException if the name is already used or the filter is invalid
+     * @throws IllegalStateException    if the whiteboard has already been started
+     */
+    public <S> ComponentWhiteboard<C> require(String name, Class<S> serviceType, String filter) {
+        Validate.validState(!started.get(), "Dependencies must be declared before the whiteboard is started.");
+        Validate.isTrue(!dependencies.containsKey(name), "Dependency \"%s\" is already declared.", name);
+        final Dependency<S> dependency = new Dependency<>(bundleContext, serviceType, filter);
+        dependency.addWhiteboardListener(event -> schedule());
+        dependencies.put(name, dependency);
+        return this;
+    }
+
+    private static boolean sameServices(Map<String, Object> a, Map<String, Object> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : a.entrySet()) {
+            if (b.get(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queues a re-evaluation of the component.  This is called from the dependencies' listeners (which hold their
+     * event locks), so it never calls the activator or deactivator itself.
+     */
+    private void schedule() {
+        final Executor target;
+        synchronized (queueLock) {
+            requested = true;
+            if (drained != null) {
+                return;
+            }
+            target = executor != null ? executor : defaultExecutor();
+            if (target == null) {
+                // Stopped; the final deactivation has already been queued.
+                requested = false;
+                return;
+            }
+            drained = new CompletableFuture<>();
+        }
+        try {
+            target.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            logger.error("Executor rejected component activation.", e);
+            final CompletableFuture<Void> failed;
+            synchronized (queueLock) {
+                requested = false;
+                failed = drained;
+                drained = null;
+            }
+            failed.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Returns this whiteboard's own executor, creating it if necessary.  Callers must hold the queue lock.
+     *
+     * @return the executor, or null if this whiteboard has been stopped
+     */
+    private Executor defaultExecutor() {
+        if (defaultExecutor == null && !closed) {
+            defaultExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "eos-component-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Starts tracking the dependencies, activating the component as soon as all of them are satisfied.
+     */
+    public void start() {
+        if (started.compareAndSet(false, true)) {
+            dependencies.values().forEach(AbstractWhiteboard::start);
+            schedule();
+        } else {
+            logger.warn("Component whiteboard already started.");
+        }
+    }
+
+    /**
+     * Stops tracking the dependencies, deactivating the component if it is active.  Unless called from the activator
+     * or deactivator itself, this waits for the deactivation to complete.  Like other whiteboards, a stopped component
+     * whiteboard cannot be started again.
+     */
+    public void stop() {
+        if (started.compareAndSet(true, false)) {
+            dependencies.values().forEach(AbstractWhiteboard::stop);
+            schedule();
+            final CompletableFuture<Void> pending = awaitPending();
+            final ExecutorService owned;
+            synchronized (queueLock) {
+                closed = true;
+                owned = defaultExecutor;
+                defaultExecutor = null;
+            }
+            if (owned != null) {
+                // Already queued work is still performed.
+                owned.shutdown();
+            }
+            if (Thread.currentThread() != drainingThread) {
+                pending.handle((result, error) -> null).join();
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * The services bound to a component's dependencies when it was activated.
+     */
+    public static final class Dependencies {
+        private final Map<String, Object> services;
+
+        private Dependencies(Map<String, Object> services) {
+            this.services = services;
+        }
+
+        /**
+         * Returns the service bound to a dependency.
+         *
+         * @param name        the dependency name
+         * @param serviceType the service type
+         * @param <S>         the service type
+         * @return the service
+         * @throws IllegalArgumentException if no such dependency was declared
+         */
+        public <S> S get(String name, Class<S> serviceType) {
+            Validate.isTrue(services.containsKey(name), "Unknown dependency \"%s\".", name);
+            return serviceType.cast(services.get(name));
+        }
+    }
+
+    private static final class Binding<S> {
+        private final S service;
+        private final long serviceId;
+        private final int ranking;
+
+        private Binding(S service, long serviceId, int ranking) {
+            this.service = service;
+            this.serviceId = serviceId;
+            this.ranking = ranking;
+        }
+    }
+
+    /**
+     * Tracks the services which could satisfy a dependency, in the order in which they would be bound.
+     */
+    private static final class Dependency<S> extends AbstractWhiteboard<S, Binding<S>> {
+        private final ConcurrentSkipListSet<Binding<S>> candidates = new ConcurrentSkipListSet<>(ORDER);
+
+        private Dependency(BundleContext bundleContext, Class<S> serviceType, String filter) {
+            super(bundleContext, serviceType, filter);
+        }
+
+        @Override
+        protected Binding<S> addService(S service, ServiceProperties props) {
+            final Binding<S> binding = new Binding<>(service, props.getServiceId(), props.getServiceRanking());
+            candidates.add(binding);
+            return binding;
+        }
+
+        private S getBound() {
+            final Iterator<Binding<S>> i = candidates.iterator();
+            return i.hasNext() ? i.next().service : null;
+        }
+
+        @Override
+        protected void removeService(S service, Binding<S> tracked) {
+            candidates.remove(tracked);
+        }
+    }
+}
@@ -16,16 +16,34 @@
 
 package com.savoirtech.eos.pattern.whiteboard;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 import com.savoirtech.eos.util.ServiceProperties;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 
 /**
  * A whiteboard class that allows you to "decorate" a discovered service and expose the newly-created decorator
  * as a service.
+ * <p>
+ * By default, decorators are registered and unregistered from within the tracker callback, which means that the
+ * resulting service events are delivered (and may cause other whiteboards to react) before the callback returns.  If
+ * an executor is set (see {@link #setExecutor(Executor)}), that work is instead queued and performed on the executor,
+ * and a decorator whose service goes away before its registration was performed is never registered at all.
  *
  * @param <S> the service type
  * @param <D> the decorator type
@@ -35,16 +53,75 @@ public abstract class DecoratorWhiteboard<S, D> extends AbstractWhiteboard<S, Se
 // Fields
 //----------------------------------------------------------------------------------------------------------------------
 
+    private static final Set<String> FRAMEWORK_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(Constants.OBJECTCLASS, Constants.SERVICE_ID, "service.bundleid", "service.scope")));
+
     private final Class<D> decoratorType;
+    private final Object queueLock = new Object();
+    private final Set<DeferredRegistration> queue = new LinkedHashSet<>();
+    private CompletableFuture<Void> drained;
+    private volatile Executor executor;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns a short, readable signature of a method, for example {@code sayHello(String)}.
+     *
+     * @param method the method
+     * @return the signature
+     */
+    static String signatureOf(Method method) {
+        return method.getName() + Arrays.stream(method.getParameterTypes()).map(Class::getSimpleName).collect(Collectors.joining(", ", "(", ")"));
+    }
 
 //----------------------------------------------------------------------------------------------------------------------
 // Constructors
 //----------------------------------------------------------------------------------------------------------------------
 
     public DecoratorWhiteboard(BundleContext bundleContext, Class<S> serviceType, Class<D> decoratorType) {
+        this(bundleContext, serviceType, decoratorType, true);
+    }
+
+    /**
+     * Constructs a new DecoratorWhiteboard, optionally without starting it.  Subclasses whose
+     * {@link #createDecorator(Object, ServiceProperties)} relies on their own fields should pass false and call
+     * {@link #start()} at the end of their constructor, since those fields are not yet initialized while this
+     * constructor runs.
+     *
+     * @param bundleContext the bundle context
+     * @param serviceType   the service type
+     * @param decoratorType the decorator type
+     * @param start         whether to start tracking services immediately
+     */
+    protected DecoratorWhiteboard(BundleContext bundleContext, Class<S> serviceType, Class<D> decoratorType, boolean start) {
         super(bundleContext, serviceType);
         this.decoratorType = decoratorType;
-        start();
+        if (start) {
+            start();
+        }
+    }
+
+    /**
+     * Constructs a new DecoratorWhiteboard which decorates only those services which match the given (LDAP-style)
+     * filter, optionally without starting it (see
+     * {@link #DecoratorWhiteboard(BundleContext, Class, Class, boolean)}).  Subclasses which register their
+     * decorators under the service type itself should use a filter which excludes their own decorators, so that
+     * those are never tracked at all.
+     *
+     * @param bundleContext the bundle context
+     * @param serviceType   the service type
+     * @param decoratorType the decorator type
+     * @param filter        the filter (or null to decorate all services of the service type)
+     * @param start         whether to start tracking services immediately
+     * @throws IllegalArgumentException if the filter is invalid
+     */
+    protected DecoratorWhiteboard(BundleContext bundleContext, Class<S> serviceType, Class<D> decoratorType, String filter, boolean start) {
+        super(bundleContext, serviceType, filter);
+        this.decoratorType = decoratorType;
+        if (start) {
+            start();
+        }
     }
 
 //----------------------------------------------------------------------------------------------------------------------
@@ -60,6 +137,30 @@ public abstract class DecoratorWhiteboard<S, D> extends AbstractWhiteboard<S, Se
      */
     protected abstract D createDecorator(S service, ServiceProperties props);
 
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Enables deferred mode, in which decorators are registered, modified and unregistered using the given executor
+     * rather than from within the tracker callback.  The work is performed one registration at a time, in the order
+     * it was queued, and pending work for the same decorator is coalesced (a decorator which is unregistered before
+     * it was registered is never registered at all).  The {@link ServiceRegistration}s handed to
+     * {@link #removeService(Object, ServiceRegistration)} are then placeholders, whose
+     * {@link ServiceRegistration#getReference()} throws {@link IllegalStateException} until the decorator has
+     * actually been registered.  Use {@link #awaitPending()} to find out when the queued work has been performed.
+     * Passing null restores synchronous mode for decorators added afterwards.
+     *
+     * @param executor the executor (or null)
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Other Methods
 //----------------------------------------------------------------------------------------------------------------------
@@ -71,8 +172,25 @@ public abstract class DecoratorWhiteboard<S, D> extends AbstractWhiteboard<S, Se
             return null;
         }
         Dictionary<String, ?> decoratorServiceProps = decoratorServiceProps(props);
-        getLogger().info("Registering decorator service {} with properties {}", decoratorType.getSimpleName(), decoratorServiceProps);
-        return getBundleContext().registerService(decoratorType, decorator, decoratorServiceProps);
+        if (executor != null) {
+            final DeferredRegistration registration = new DeferredRegistration(decorator, decoratorServiceProps);
+            enqueue(registration);
+            return registration;
+        }
+        return register(decorator, decoratorServiceProps);
+    }
+
+    /**
+     * Returns a future which completes once all of the registration work queued at the time of the call (see
+     * {@link #setExecutor(Executor)}) has been performed.  In synchronous mode, the returned future is already
+     * complete.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> awaitPending() {
+        synchronized (queueLock) {
+            return drained == null ? CompletableFuture.completedFuture(null) : drained;
+        }
     }
 
     /**
@@ -85,9 +203,169 @@ public abstract class DecoratorWhiteboard<S, D> extends AbstractWhiteboard<S, Se
         return new Hashtable<>();
     }
 
+    /**
+     * Copies the service properties of the decorated service, except those set by the framework itself (object class,
+     * service id, etc.), so that they can be used as (a starting point for) the decorator service properties.
+     *
+     * @param serviceProperties the service properties
+     * @return a mutable copy of the service properties
+     */
+    protected Hashtable<String, Object> copyServiceProps(ServiceProperties serviceProperties) {
+        final Hashtable<String, Object> props = new Hashtable<>();
+        serviceProperties.asMap().forEach((key, value) -> {
+            if (!FRAMEWORK_KEYS.contains(key)) {
+                props.put(key, value);
+            }
+        });
+        return props;
+    }
+
+    private void drain() {
+        while (true) {
+            final DeferredRegistration next;
+            final CompletableFuture<Void> completed;
+            synchronized (queueLock) {
+                final Iterator<DeferredRegistration> i = queue.iterator();
+                if (i.hasNext()) {
+                    next = i.next();
+                    i.remove();
+                    completed = null;
+                } else {
+                    next = null;
+                    completed = drained;
+                    drained = null;
+                }
+            }
+            if (next == null) {
+                completed.complete(null);
+                return;
+            }
+            try {
+                next.apply();
+            } catch (RuntimeException e) {
+                getLogger().error("Unable to apply queued change to decorator service {}.", decoratorType.getSimpleName(), e);
+            }
+        }
+    }
+
+    private void enqueue(DeferredRegistration registration) {
+        final Executor target = executor;
+        boolean start = false;
+        synchronized (queueLock) {
+            queue.add(registration);
+            if (drained == null) {
+                drained = new CompletableFuture<>();
+                start = true;
+            }
+        }
+        if (start) {
+            if (target == null) {
+                drain();
+                return;
+            }
+            try {
+                target.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                getLogger().warn("Executor rejected queued decorator work; performing it on the calling thread.");
+                drain();
+            }
+        }
+    }
+
+    private ServiceRegistration<D> register(D decorator, Dictionary<String, ?> decoratorServiceProps) {
+        getLogger().info("Registering decorator service {} with properties {}", decoratorType.getSimpleName(), decoratorServiceProps);
+        return getBundleContext().registerService(decoratorType, decorator, decoratorServiceProps);
+    }
+
     @Override
     protected void removeService(S service, ServiceRegistration<D> tracked) {
         getLogger().info("Unregistering decorator service {}.", decoratorType.getSimpleName());
         tracked.unregister();
     }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * A placeholder for a decorator registration which is performed (or modified, or removed) later, by
+     * {@link #drain()}.  Only the draining thread calls {@link #apply()}, so the framework is never called while
+     * holding this object's lock.
+     */
+    private final class DeferredRegistration implements ServiceRegistration<D> {
+        private final D decorator;
+        private Dictionary<String, ?> props;
+        private boolean propsChanged;
+        private boolean unregistered;
+        private ServiceRegistration<D> registration;
+
+        private DeferredRegistration(D decorator, Dictionary<String, ?> props) {
+            this.decorator = decorator;
+            this.props = props;
+        }
+
+        private void apply() {
+            final ServiceRegistration<D> current;
+            final Dictionary<String, ?> changedProps;
+            final boolean remove;
+            synchronized (this) {
+                current = registration;
+                remove = unregistered;
+                changedProps = propsChanged ? props : null;
+                propsChanged = false;
+            }
+            if (remove) {
+                if (current != null) {
+                    try {
+                        current.unregister();
+                    } catch (IllegalStateException e) {
+                        getLogger().debug("Decorator service {} was already unregistered.", decoratorType.getSimpleName());
+                    }
+                } else {
+                    getLogger().debug("Skipping registration of decorator service {}, which has already been removed.", decoratorType.getSimpleName());
+                }
+            } else if (current == null) {
+                final ServiceRegistration<D> registered = register(decorator, props);
+                synchronized (this) {
+                    registration = registered;
+                }
+            } else if (changedProps != null) {
+                current.setProperties(changedProps);
+            }
+        }
+
+        @Override
+        public synchronized ServiceReference<D> getReference() {
+            if (unregistered) {
+                throw new IllegalStateException("Decorator service already unregistered.");
+            }
+            if (registration == null) {
+                throw new IllegalStateException("Decorator service not registered yet.");
+            }
+            return registration.getReference();
+        }
+
+        @Override
+        public void setProperties(Dictionary<String, ?> properties) {
+            synchronized (this) {
+                if (unregistered) {
+                    throw new IllegalStateException("Decorator service already unregistered.");
+                }
+                props = properties;
+                propsChanged = true;
+            }
+            enqueue(this);
+        }
+
+        @Override
+        public void unregister() {
+            synchronized (this) {
+                if (unregistered) {
+                    throw new IllegalStateException("Decorator service already unregistered.");
+                }
+                unregistered = true;
+            }
+            enqueue(this);
+        }
+    }
 }
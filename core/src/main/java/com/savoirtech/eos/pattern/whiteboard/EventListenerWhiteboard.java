@@ -16,8 +16,11 @@
 
 package com.savoirtech.eos.pattern.whiteboard;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
 import java.util.function.BiFunction;
 
+import com.savoirtech.eos.metrics.Metrics;
 import com.savoirtech.eos.util.ServiceProperties;
 import org.apache.commons.lang3.event.EventListenerSupport;
 import org.osgi.framework.BundleContext;
@@ -33,7 +36,7 @@ public class EventListenerWhiteboard<L> extends AbstractWhiteboard<L, L> {
 // Fields
 //----------------------------------------------------------------------------------------------------------------------
 
-    private final EventListenerSupport<L> listenerSupport;
+    private final TimedListenerSupport<L> listenerSupport;
     private final BiFunction<L, ServiceProperties, L> decorator;
 
 //----------------------------------------------------------------------------------------------------------------------
@@ -62,11 +65,28 @@ public class EventListenerWhiteboard<L> extends AbstractWhiteboard<L, L> {
      */
     public EventListenerWhiteboard(BundleContext bundleContext, Class<L> listenerType, BiFunction<L, ServiceProperties, L> decorator) {
         super(bundleContext, listenerType);
-        this.listenerSupport = new EventListenerSupport<>(listenerType, listenerType.getClassLoader());
+        this.listenerSupport = new TimedListenerSupport<>(listenerType);
         this.decorator = decorator;
         start();
     }
 
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Sets the metrics used by this whiteboard.  In addition to those recorded by all whiteboards, the timer
+     * {@code fire} records how long each call made through {@link #fire()} takes to reach all of the listeners.  The
+     * timing happens within the {@link EventListenerSupport}'s own proxy, so it adds no further indirection.
+     *
+     * @param metrics the metrics
+     */
+    @Override
+    public void setMetrics(Metrics metrics) {
+        super.setMetrics(metrics);
+        listenerSupport.timer = metrics == Metrics.NONE ? null : metrics.timer("fire");
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Other Methods
 //----------------------------------------------------------------------------------------------------------------------
@@ -94,6 +114,42 @@ public class EventListenerWhiteboard<L> extends AbstractWhiteboard<L, L> {
 
     @Override
     protected void removeService(L service, L tracked) {
-        listenerSupport.removeListener(service);
+        listenerSupport.removeListener(tracked);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * An {@link EventListenerSupport} whose proxy records the duration of each dispatch, if a timer is set.
+     */
+    private static final class TimedListenerSupport<L> extends EventListenerSupport<L> {
+        private static final long serialVersionUID = 1L;
+
+        private transient volatile Metrics.Timer timer;
+
+        private TimedListenerSupport(Class<L> listenerType) {
+            super(listenerType, listenerType.getClassLoader());
+        }
+
+        @Override
+        protected InvocationHandler createInvocationHandler() {
+            return new ProxyInvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    final Metrics.Timer current = timer;
+                    if (current == null || method.getDeclaringClass() == Object.class) {
+                        return super.invoke(proxy, method, args);
+                    }
+                    final long start = System.nanoTime();
+                    try {
+                        return super.invoke(proxy, method, args);
+                    } finally {
+                        current.record(System.nanoTime() - start);
+                    }
+                }
+            };
+        }
     }
 }
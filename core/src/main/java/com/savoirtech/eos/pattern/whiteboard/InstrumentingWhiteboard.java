@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.MapMaker;
+import com.savoirtech.eos.util.ServiceProperties;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * A whiteboard which wraps every service of the given interface with an instrumented decorator, recording per-method
+ * call counts, error counts and latency histograms.  The decorator is registered under the same interface, with the
+ * original service's properties plus {@value #INSTRUMENTED}{@code =true} and {@value #INSTRUMENTED_SERVICE_ID}, so
+ * consumers opt in using a filter such as {@code (eos.instrumented=true)}.  Services which already carry the
+ * {@value #INSTRUMENTED} property (including this whiteboard's own decorators) are not tracked at all.
+ * <p>
+ * The decorator is a JDK dynamic proxy, so every call pays for reflection: the arguments are boxed into an array and
+ * the service is called using {@link Method#invoke(Object, Object...)}.  The per-method statistics are resolved once,
+ * when a service is decorated, so recording a call only adds one hash lookup plus the counter updates.
+ *
+ * @param <S> the service type
+ */
+public class InstrumentingWhiteboard<S> extends DecoratorWhiteboard<S, S> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static final String INSTRUMENTED = "eos.instrumented";
+    public static final String INSTRUMENTED_SERVICE_ID = "eos.instrumented.service.id";
+
+    private final Method[] methods;
+    private final Map<Long, ServiceStatistics> statistics = new MapMaker().makeMap();
+    private final Map<ServiceRegistration<S>, Long> serviceIds = new MapMaker().makeMap();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public InstrumentingWhiteboard(BundleContext bundleContext, Class<S> serviceType) {
+        super(bundleContext, serviceType, serviceType, String.format("(!(%s=*))", INSTRUMENTED), false);
+        this.methods = serviceType.getMethods();
+        start();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the statistics of the services currently decorated, by (original) service id.
+     *
+     * @return the statistics
+     */
+    public Map<Long, ServiceStatistics> getStatistics() {
+        return Collections.unmodifiableMap(new TreeMap<>(statistics));
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    protected S createDecorator(S service, ServiceProperties props) {
+        final ServiceStatistics serviceStatistics = new ServiceStatistics(props.getServiceId(), methods);
+        statistics.put(props.getServiceId(), serviceStatistics);
+        final Class<S> serviceType = getServiceType();
+        return serviceType.cast(Proxy.newProxyInstance(serviceType.getClassLoader(), new Class<?>[]{serviceType}, new InstrumentingHandler(service, props, serviceStatistics)));
+    }
+
+    @Override
+    protected Dictionary<String, ?> decoratorServiceProps(ServiceProperties serviceProperties) {
+        final Hashtable<String, Object> props = copyServiceProps(serviceProperties);
+        props.put(INSTRUMENTED, Boolean.TRUE);
+        props.put(INSTRUMENTED_SERVICE_ID, serviceProperties.getServiceId());
+        return props;
+    }
+
+    @Override
+    protected ServiceRegistration<S> addService(S service, ServiceProperties props) {
+        final ServiceRegistration<S> registration = super.addService(service, props);
+        if (registration != null) {
+            serviceIds.put(registration, props.getServiceId());
+        }
+        return registration;
+    }
+
+    @Override
+    protected void removeService(S service, ServiceRegistration<S> tracked) {
+        final Long serviceId = serviceIds.remove(tracked);
+        if (serviceId != null) {
+            statistics.remove(serviceId);
+        }
+        super.removeService(service, tracked);
+    }
+
+    /**
+     * Called after every call made through an instrumented decorator, so that subclasses can forward calls to a tracing
+     * system or report slow calls.  This method runs on the caller's thread, so it must be cheap, and it must not
+     * throw.  The default implementation does nothing.
+     *
+     * @param props  the properties of the original service
+     * @param method the method called
+     * @param nanos  the duration of the call, in nanoseconds
+     * @param error  the exception thrown by the call (or null)
+     */
+    protected void traced(ServiceProperties props, Method method, long nanos, Throwable error) {
+        // Do nothing!
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final class InstrumentingHandler implements InvocationHandler {
+        private final S target;
+        private final ServiceProperties props;
+        private final Map<Method, MethodStatistics> byMethod;
+
+        private InstrumentingHandler(S target, ServiceProperties props, ServiceStatistics serviceStatistics) {
+            this.target = target;
+            this.props = props;
+            this.byMethod = serviceStatistics.byMethod;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final MethodStatistics methodStatistics = byMethod.get(method);
+            if (methodStatistics == null) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return method.invoke(target, args);
+                }
+            }
+            final long start = System.nanoTime();
+            Throwable error = null;
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                error = e.getCause();
+                throw error;
+            } finally {
+                final long nanos = System.nanoTime() - start;
+                methodStatistics.record(nanos, error != null);
+                traced(props, method, nanos, error);
+            }
+        }
+    }
+
+    /**
+     * The statistics of one decorated service.
+     */
+    public static final class ServiceStatistics {
+        private final long serviceId;
+        private final Map<Method, MethodStatistics> byMethod;
+
+        private ServiceStatistics(long serviceId, Method[] methods) {
+            this.serviceId = serviceId;
+            final Map<Method, MethodStatistics> byMethod = new HashMap<>();
+            for (Method method : methods) {
+                byMethod.put(method, new MethodStatistics(signatureOf(method)));
+            }
+            this.byMethod = byMethod;
+        }
+
+        /**
+         * Returns the statistics of each method, by signature (for example {@code sayHello(String)}).
+         *
+         * @return the method statistics
+         */
+        public Map<String, MethodStatistics> getMethods() {
+            return Collections.unmodifiableMap(byMethod.values().stream().collect(Collectors.toMap(MethodStatistics::getSignature, m -> m, (a, b) -> a, TreeMap::new)));
+        }
+
+        public long getServiceId() {
+            return serviceId;
+        }
+    }
+
+    /**
+     * The statistics of one method of a decorated service.  Latencies are recorded into power-of-two buckets, so
+     * percentiles are reported as the upper bound of the bucket they fall into (within a factor of two).
+     */
+    public static final class MethodStatistics {
+        private static final int BUCKETS = 64;
+
+        private final String signature;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private MethodStatistics(String signature) {
+            this.signature = signature;
+        }
+
+        private void record(long nanos, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets.incrementAndGet(Math.min(BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 0)), BUCKETS - 1));
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanNanos() {
+            final long n = calls.sum();
+            return n == 0 ? 0.0 : (double) totalNanos.sum() / n;
+        }
+
+        /**
+         * Returns (an upper bound of) the latency below which the given percentage of calls completed.
+         *
+         * @param percentile the percentile (between 0 and 100)
+         * @return the latency, in nanoseconds (or 0 if no calls were recorded)
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            final long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            final long threshold = (long) Math.ceil(total * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= threshold && seen > 0) {
+                    return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                }
+            }
+            return 0;
+        }
+
+        public String getSignature() {
+            return signature;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d call(s), %d error(s), mean %.0f ns, p99 <= %d ns, max %d ns", signature, getCalls(), getErrors(), getMeanNanos(), getPercentileNanos(99.0), getMaxNanos());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+/**
+ * A cross-cutting interceptor (authorization, metrics, retries, etc.) composed into an invocation chain by an
+ * {@link InterceptorWhiteboard}.  Applications typically extend this interface with one binding its type parameters
+ * (for example {@code interface RequestInterceptor extends Interceptor<Request, Response>}) and register their
+ * interceptors as services of that interface.
+ *
+ * @param <T> the request type
+ * @param <R> the result type
+ */
+@FunctionalInterface
+public interface Interceptor<T, R> {
+    /**
+     * Intercepts a request.  Implementations usually call {@code next.proceed(request)} (possibly with a different
+     * request, possibly more than once), but may also short-circuit the rest of the chain.
+     *
+     * @param request the request
+     * @param next    the rest of the chain
+     * @return the result
+     * @throws Exception if the request fails
+     */
+    R intercept(T request, Chain<T, R> next) throws Exception;
+
+    /**
+     * The rest of an invocation chain.
+     *
+     * @param <T> the request type
+     * @param <R> the result type
+     */
+    @FunctionalInterface
+    interface Chain<T, R> {
+        R proceed(T request) throws Exception;
+    }
+}
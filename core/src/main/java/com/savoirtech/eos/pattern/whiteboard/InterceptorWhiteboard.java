@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.savoirtech.eos.util.ServiceProperties;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+/**
+ * A whiteboard which composes the {@link Interceptor} services it tracks into a single invocation chain, ending in a
+ * "terminal" chain supplied by the caller.  Interceptors are ordered as OSGi orders services: the interceptor with the
+ * highest service ranking is called first (outermost), and ties go to the lowest service id.
+ * <p>
+ * The chain is compiled into nested, immutable links whenever the set of interceptors changes, so that invoking it
+ * costs one direct call per interceptor, with no iteration, locking or allocation.  Invocations which are already in
+ * progress when the chain is recompiled complete using the chain they started with.
+ *
+ * @param <S> the interceptor (service) type
+ * @param <T> the request type
+ * @param <R> the result type
+ */
+public class InterceptorWhiteboard<S extends Interceptor<T, R>, T, R> extends AbstractWhiteboard<S, InterceptorWhiteboard.Link<S>> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final Comparator<Link<?>> ORDER = Comparator.<Link<?>>comparingInt(link -> link.ranking).reversed().thenComparingLong(link -> link.serviceId);
+
+    private final Interceptor.Chain<T, R> terminal;
+    private final Set<Link<S>> links = new HashSet<>();
+    private volatile Interceptor.Chain<T, R> chain;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Constructs a new InterceptorWhiteboard.
+     *
+     * @param bundleContext   the bundle context
+     * @param interceptorType the interceptor (service) type
+     * @param terminal        the end of the chain, called by the innermost interceptor (or directly, if there are no
+     *                        interceptors)
+     */
+    public InterceptorWhiteboard(BundleContext bundleContext, Class<S> interceptorType, Interceptor.Chain<T, R> terminal) {
+        super(bundleContext, interceptorType);
+        this.terminal = terminal;
+        this.chain = terminal;
+        start();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the current (compiled) chain.  The returned chain never changes; callers which want to see interceptor
+     * changes must call this method again.
+     *
+     * @return the chain
+     */
+    public Interceptor.Chain<T, R> getChain() {
+        return chain;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    protected Link<S> addService(S service, ServiceProperties props) {
+        final Link<S> link = new Link<>(service, props.getServiceId(), props.getServiceRanking());
+        synchronized (links) {
+            links.add(link);
+            compile();
+        }
+        return link;
+    }
+
+    /**
+     * Compiles the chain, innermost link first.  Must be called holding the lock on {@link #links}.
+     */
+    private void compile() {
+        final List<Link<S>> ordered = new ArrayList<>(links);
+        ordered.sort(ORDER);
+        Interceptor.Chain<T, R> compiled = terminal;
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            final S interceptor = ordered.get(i).interceptor;
+            final Interceptor.Chain<T, R> next = compiled;
+            compiled = request -> interceptor.intercept(request, next);
+        }
+        chain = compiled;
+        getLogger().debug("Compiled {} chain of {} interceptor(s).", getServiceType().getSimpleName(), ordered.size());
+    }
+
+    /**
+     * Invokes the current chain.
+     *
+     * @param request the request
+     * @return the result
+     * @throws Exception if the request fails
+     */
+    public R invoke(T request) throws Exception {
+        return chain.proceed(request);
+    }
+
+    @Override
+    protected void removeService(S service, Link<S> tracked) {
+        synchronized (links) {
+            if (links.remove(tracked)) {
+                compile();
+            }
+        }
+    }
+
+    /**
+     * Swaps the link of a modified interceptor (re-ranking it, say) and compiles the chain once, so that no
+     * invocation ever sees a chain without the interceptor.
+     */
+    @Override
+    protected Link<S> modifyService(S service, Link<S> tracked, ServiceProperties props) {
+        final Link<S> link = new Link<>(service, props.getServiceId(), props.getServiceRanking());
+        synchronized (links) {
+            links.remove(tracked);
+            links.add(link);
+            compile();
+        }
+        return link;
+    }
+
+    /**
+     * Removes all of a stopping bundle's interceptors, compiling the chain once.
+     */
+    @Override
+    protected void removeServices(Bundle bundle, List<Removal<S, Link<S>>> removals) {
+        synchronized (links) {
+            boolean changed = false;
+            for (Removal<S, Link<S>> removal : removals) {
+                changed |= links.remove(removal.getTracked());
+            }
+            if (changed) {
+                compile();
+            }
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * A tracked interceptor, with the service properties which determine its position in the chain.
+     *
+     * @param <S> the interceptor (service) type
+     */
+    public static final class Link<S> {
+        private final S interceptor;
+        private final long serviceId;
+        private final int ranking;
+
+        private Link(S interceptor, long serviceId, int ranking) {
+            this.interceptor = interceptor;
+            this.serviceId = serviceId;
+            this.ranking = ranking;
+        }
+    }
+}
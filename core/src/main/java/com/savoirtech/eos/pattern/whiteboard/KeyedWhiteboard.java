@@ -16,11 +16,17 @@
 
 package com.savoirtech.eos.pattern.whiteboard;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
 import com.google.common.collect.MapMaker;
+import com.savoirtech.eos.metrics.Metrics;
+import com.savoirtech.eos.util.ConcurrentLongHashMap;
 import com.savoirtech.eos.util.ServiceProperties;
 import org.osgi.framework.BundleContext;
 
@@ -35,8 +41,10 @@ public class KeyedWhiteboard<K, S> extends AbstractWhiteboard<S, K> {
 // Fields
 //----------------------------------------------------------------------------------------------------------------------
 
-    private final Map<K, S> serviceMap = new MapMaker().concurrencyLevel(5).makeMap();
+    private final Map<K, S> serviceMap;
     private final BiFunction<S, ServiceProperties, K> keyFunction;
+    private volatile Metrics.Counter hits = Metrics.NONE.counter("lookup.hit");
+    private volatile Metrics.Counter misses = Metrics.NONE.counter("lookup.miss");
 
 //----------------------------------------------------------------------------------------------------------------------
 // Constructors
@@ -51,11 +59,42 @@ public class KeyedWhiteboard<K, S> extends AbstractWhiteboard<S, K> {
      * @param keyFunction   the function that maps the {@link com.savoirtech.eos.util.ServiceProperties} to the key value
      */
     public KeyedWhiteboard(BundleContext bundleContext, Class<S> serviceType, BiFunction<S, ServiceProperties, K> keyFunction) {
-        super(bundleContext, serviceType);
+        this(bundleContext, serviceType, keyFunction, ConcurrentLongHashMap.DEFAULT_EXPECTED_ITEMS);
+    }
+
+    /**
+     * Constructs a new KeyedWhiteboard which tracks service of the prescribed service type, mapping them to keys using
+     * the given key function.  The internal tables are sized to hold the expected number of services without resizing.
+     *
+     * @param bundleContext        the bundle context
+     * @param serviceType          the service type
+     * @param keyFunction          the function that maps the {@link com.savoirtech.eos.util.ServiceProperties} to the key value
+     * @param expectedServiceCount the expected number of services (a sizing hint only)
+     */
+    public KeyedWhiteboard(BundleContext bundleContext, Class<S> serviceType, BiFunction<S, ServiceProperties, K> keyFunction, int expectedServiceCount) {
+        super(bundleContext, serviceType, expectedServiceCount);
+        this.serviceMap = new MapMaker().initialCapacity(expectedServiceCount).concurrencyLevel(5).makeMap();
         this.keyFunction = keyFunction;
         start();
     }
 
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Sets the metrics used by this whiteboard.  In addition to those recorded by all whiteboards, the counters
+     * {@code lookup.hit} and {@code lookup.miss} record the outcomes of {@link #getService(Object)}.
+     *
+     * @param metrics the metrics
+     */
+    @Override
+    public void setMetrics(Metrics metrics) {
+        super.setMetrics(metrics);
+        this.hits = metrics.counter("lookup.hit");
+        this.misses = metrics.counter("lookup.miss");
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Other Methods
 //----------------------------------------------------------------------------------------------------------------------
@@ -73,6 +112,18 @@ public class KeyedWhiteboard<K, S> extends AbstractWhiteboard<S, K> {
         return null;
     }
 
+    /**
+     * Returns a future which completes once services are present for all of the given keys.
+     *
+     * @param keys the required keys
+     * @return the readiness future
+     * @see #awaitReady(java.util.function.BooleanSupplier)
+     */
+    public CompletableFuture<Void> awaitReady(Collection<? extends K> keys) {
+        final Set<K> required = new HashSet<>(keys);
+        return awaitReady(() -> serviceMap.keySet().containsAll(required));
+    }
+
     /**
      * Returns the services currently tracked by this whiteboard as a {@link Map} object.
      *
@@ -89,11 +140,13 @@ public class KeyedWhiteboard<K, S> extends AbstractWhiteboard<S, K> {
      * @return the service (or null if it doesn't exist)
      */
     public S getService(K key) {
-        return serviceMap.get(key);
+        final S service = serviceMap.get(key);
+        (service == null ? misses : hits).increment();
+        return service;
     }
 
     @Override
     protected void removeService(S service, K tracked) {
-        serviceMap.remove(tracked);
+        serviceMap.remove(tracked, service);
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks a method of a service interface as idempotent, so that a {@link MemoizingWhiteboard} may cache its results by
+ * argument values.  The limits given here can be overridden per service using service properties (see
+ * {@link MemoizingWhiteboard}).
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Memoize {
+    /**
+     * The maximum number of cached results (or a negative number for no limit).  Ignored if
+     * {@link #maximumWeight()} is set.
+     *
+     * @return the maximum size
+     */
+    long maximumSize() default 1000;
+
+    /**
+     * The maximum total weight of cached results (or a negative number to limit by {@link #maximumSize()} instead).
+     * Results are weighed using {@link MemoizingWhiteboard#weigh(java.lang.reflect.Method, Object)}.
+     *
+     * @return the maximum weight
+     */
+    long maximumWeight() default -1;
+
+    /**
+     * How long a result may be cached after it was computed (or a non-positive number to never expire).
+     *
+     * @return the time to live
+     */
+    long expireAfterWrite() default -1;
+
+    /**
+     * The unit of {@link #expireAfterWrite()}.
+     *
+     * @return the time unit
+     */
+    TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+}
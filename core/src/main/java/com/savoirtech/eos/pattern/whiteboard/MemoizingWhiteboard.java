@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.savoirtech.eos.util.Conversions;
+import com.savoirtech.eos.util.ServiceProperties;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+/**
+ * A whiteboard which wraps every service of the given interface with a decorator caching the results of its
+ * idempotent methods, by argument values.  The decorator is registered under the same interface, with the original
+ * service's properties plus {@value #MEMOIZED}{@code =true}, so consumers opt in using a filter such as
+ * {@code (eos.memoized=true)}.  Services which do not have any cached methods are not decorated.  This whiteboard's
+ * own decorators are never tracked, and if the service type has no {@link Memoize} annotations, neither are services
+ * which do not set {@value #METHODS}.
+ * <p>
+ * Methods are cached if they are annotated with {@link Memoize}, or if the service lists their names in the
+ * {@value #METHODS} property.  The limits of all cached methods of a service can be overridden using the
+ * {@value #MAXIMUM_SIZE}, {@value #MAXIMUM_WEIGHT} and {@value #EXPIRE_AFTER_WRITE} (a duration, such as {@code 30s}) properties.
+ * <p>
+ * Each cached method gets its own bounded cache, evicting least-recently-used results first.  Concurrent calls with
+ * the same arguments wait for a single call to the service rather than all calling it.  Exceptions are never cached.
+ * Modifying or unregistering a service discards its caches.
+ *
+ * @param <S> the service type
+ */
+public class MemoizingWhiteboard<S> extends DecoratorWhiteboard<S, S> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static final String MEMOIZED = "eos.memoized";
+    public static final String MEMOIZED_SERVICE_ID = "eos.memoized.service.id";
+    public static final String METHODS = "eos.memoize.methods";
+    public static final String MAXIMUM_SIZE = "eos.memoize.maximumSize";
+    public static final String MAXIMUM_WEIGHT = "eos.memoize.maximumWeight";
+    public static final String EXPIRE_AFTER_WRITE = "eos.memoize.expireAfterWrite";
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 1000;
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Method[] methods;
+    private final Map<Long, MemoizingHandler> handlers = new MapMaker().makeMap();
+    private final Map<ServiceRegistration<S>, Long> serviceIds = new MapMaker().makeMap();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the filter selecting the services which may have cached methods: never this whiteboard's own
+     * decorators, and only those services which list their cached methods if the service type has no
+     * {@link Memoize} annotations.
+     */
+    private static String filterFor(Class<?> serviceType) {
+        final String notMemoized = String.format("(!(%s=*))", MEMOIZED);
+        final boolean annotated = Arrays.stream(serviceType.getMethods()).anyMatch(method -> method.isAnnotationPresent(Memoize.class) && method.getReturnType() != void.class);
+        return annotated ? notMemoized : String.format("(&%s(%s=*))", notMemoized, METHODS);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public MemoizingWhiteboard(BundleContext bundleContext, Class<S> serviceType) {
+        super(bundleContext, serviceType, serviceType, filterFor(serviceType), false);
+        this.methods = serviceType.getMethods();
+        start();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the cache statistics of a decorated service, by method signature (for example
+     * {@code sayHello(String)}).
+     *
+     * @param serviceId the (original) service id
+     * @return the cache statistics (empty if the service is not decorated)
+     */
+    public Map<String, CacheStats> getCacheStats(long serviceId) {
+        final MemoizingHandler handler = handlers.get(serviceId);
+        if (handler == null) {
+            return Collections.emptyMap();
+        }
+        final Map<String, CacheStats> stats = new TreeMap<>();
+        handler.caches.forEach((method, cache) -> stats.put(signatureOf(method), cache.stats()));
+        return Collections.unmodifiableMap(stats);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    protected S createDecorator(S service, ServiceProperties props) {
+        final Map<Method, Cache<MethodArguments, Optional<Object>>> caches = new HashMap<>();
+        final List<String> methodNames = Conversions.toList(props.getProperty(METHODS));
+        for (Method method : methods) {
+            final Memoize memoize = method.getAnnotation(Memoize.class);
+            if (memoize == null && !methodNames.contains(method.getName())) {
+                continue;
+            }
+            if (method.getReturnType() == void.class) {
+                getLogger().warn("Ignoring void method {} of {} service {}.", signatureOf(method), getServiceType().getSimpleName(), props.getServiceId());
+                continue;
+            }
+            caches.put(method, buildCache(method, memoize, props));
+        }
+        if (caches.isEmpty()) {
+            return null;
+        }
+        final MemoizingHandler handler = new MemoizingHandler(service, caches);
+        handlers.put(props.getServiceId(), handler);
+        final Class<S> serviceType = getServiceType();
+        return serviceType.cast(Proxy.newProxyInstance(serviceType.getClassLoader(), new Class<?>[]{serviceType}, handler));
+    }
+
+    private Cache<MethodArguments, Optional<Object>> buildCache(Method method, Memoize memoize, ServiceProperties props) {
+        final long maximumSize = props.getLong(MAXIMUM_SIZE, memoize == null ? DEFAULT_MAXIMUM_SIZE : memoize.maximumSize());
+        final long maximumWeight = props.getLong(MAXIMUM_WEIGHT, memoize == null ? -1L : memoize.maximumWeight());
+        final Duration expireAfterWrite = props.getDuration(EXPIRE_AFTER_WRITE, memoize == null ? Duration.ZERO : Duration.ofNanos(memoize.timeUnit().toNanos(memoize.expireAfterWrite())));
+        final CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().ticker(ticker()).recordStats();
+        if (maximumWeight >= 0) {
+            builder.maximumWeight(maximumWeight).<MethodArguments, Optional<Object>>weigher((key, value) -> weigh(method, value.orElse(null)));
+        } else if (maximumSize >= 0) {
+            builder.maximumSize(maximumSize);
+        }
+        if (!expireAfterWrite.isNegative() && !expireAfterWrite.isZero()) {
+            builder.expireAfterWrite(expireAfterWrite.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return builder.build();
+    }
+
+    @Override
+    protected Dictionary<String, ?> decoratorServiceProps(ServiceProperties serviceProperties) {
+        final Hashtable<String, Object> props = copyServiceProps(serviceProperties);
+        props.put(MEMOIZED, Boolean.TRUE);
+        props.put(MEMOIZED_SERVICE_ID, serviceProperties.getServiceId());
+        return props;
+    }
+
+    /**
+     * Discards all cached results of a decorated service.
+     *
+     * @param serviceId the (original) service id
+     */
+    public void invalidate(long serviceId) {
+        final MemoizingHandler handler = handlers.get(serviceId);
+        if (handler != null) {
+            handler.caches.values().forEach(Cache::invalidateAll);
+        }
+    }
+
+    @Override
+    protected ServiceRegistration<S> addService(S service, ServiceProperties props) {
+        final ServiceRegistration<S> registration = super.addService(service, props);
+        if (registration != null) {
+            serviceIds.put(registration, props.getServiceId());
+        }
+        return registration;
+    }
+
+    @Override
+    protected void removeService(S service, ServiceRegistration<S> tracked) {
+        final Long serviceId = serviceIds.remove(tracked);
+        if (serviceId != null) {
+            final MemoizingHandler handler = handlers.remove(serviceId);
+            if (handler != null) {
+                handler.caches.values().forEach(Cache::invalidateAll);
+            }
+        }
+        super.removeService(service, tracked);
+    }
+
+    /**
+     * Returns the ticker used to expire cached results.  Subclasses may override this (in tests, for example).
+     *
+     * @return the ticker
+     */
+    protected Ticker ticker() {
+        return Ticker.systemTicker();
+    }
+
+    /**
+     * Returns the weight of a cached result, for methods limited by {@link Memoize#maximumWeight()}.  The default
+     * weighs every result as 1.
+     *
+     * @param method the method
+     * @param result the result (may be null)
+     * @return the (non-negative) weight
+     */
+    protected int weigh(Method method, Object result) {
+        return 1;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final class MemoizingHandler implements InvocationHandler {
+        private final Object target;
+        private final Map<Method, Cache<MethodArguments, Optional<Object>>> caches;
+
+        private MemoizingHandler(Object target, Map<Method, Cache<MethodArguments, Optional<Object>>> caches) {
+            this.target = target;
+            this.caches = caches;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Cache<MethodArguments, Optional<Object>> cache = caches.get(method);
+            if (cache == null) {
+                switch (method.getName()) {
+                    case "equals":
+                        if (method.getDeclaringClass() == Object.class) {
+                            return proxy == args[0];
+                        }
+                        break;
+                    case "hashCode":
+                        if (method.getDeclaringClass() == Object.class) {
+                            return System.identityHashCode(proxy);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            try {
+                return cache.get(new MethodArguments(args == null ? NO_ARGS : args), () -> {
+                    try {
+                        return Optional.ofNullable(method.invoke(target, args));
+                    } catch (InvocationTargetException e) {
+                        throw new ExecutionException(e.getCause());
+                    }
+                }).orElse(null);
+            } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+                throw e.getCause() instanceof ExecutionException ? e.getCause().getCause() : e.getCause();
+            }
+        }
+    }
+
+    /**
+     * The arguments of a call, compared by (deep) value.
+     */
+    private static final class MethodArguments {
+        private final Object[] args;
+        private final int hash;
+
+        private MethodArguments(Object[] args) {
+            this.args = args.clone();
+            this.hash = Arrays.deepHashCode(this.args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MethodArguments)) {
+                return false;
+            }
+            final MethodArguments other = (MethodArguments) o;
+            return hash == other.hash && Arrays.deepEquals(args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
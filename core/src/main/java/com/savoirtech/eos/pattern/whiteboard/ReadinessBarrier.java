@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A composite readiness condition spanning several whiteboards, which can be used to gate the start-up of a component
+ * until all of the services it depends upon are available:
+ * <pre>
+ * new ReadinessBarrier()
+ *     .require(greeters, Arrays.asList("english", "spanish"))
+ *     .require(auditors, 1)
+ *     .toFuture()
+ *     .thenRun(server::start);
+ * </pre>
+ */
+public class ReadinessBarrier {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final List<CompletableFuture<Void>> conditions = new ArrayList<>();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Waits for all of the conditions to be satisfied.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if all conditions were satisfied, false if the timeout elapsed first or a condition was cancelled
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws IllegalStateException if a condition failed
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            toFuture().get(timeout, unit);
+            return true;
+        } catch (TimeoutException | CancellationException e) {
+            return false;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException) {
+                return false;
+            }
+            throw new IllegalStateException("Readiness condition failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Cancels all pending conditions, releasing the listeners they hold on their whiteboards.
+     */
+    public void cancel() {
+        for (CompletableFuture<Void> condition : conditions) {
+            condition.cancel(false);
+        }
+    }
+
+    /**
+     * Returns true if all of the conditions have been satisfied (a cancelled or failed condition is not satisfied).
+     *
+     * @return true if all of the conditions have been satisfied
+     */
+    public boolean isReady() {
+        for (CompletableFuture<Void> condition : conditions) {
+            if (!condition.isDone() || condition.isCompletedExceptionally()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Requires the whiteboard to track at least the given number of services.
+     *
+     * @param whiteboard          the whiteboard
+     * @param minimumServiceCount the minimum number of services
+     * @return this barrier
+     */
+    public ReadinessBarrier require(AbstractWhiteboard<?, ?> whiteboard, int minimumServiceCount) {
+        return require(whiteboard.awaitReady(minimumServiceCount));
+    }
+
+    /**
+     * Requires the keyed whiteboard to contain services for all of the given keys.
+     *
+     * @param whiteboard the whiteboard
+     * @param keys       the required keys
+     * @param <K>        the key type
+     * @return this barrier
+     */
+    public <K> ReadinessBarrier require(KeyedWhiteboard<K, ?> whiteboard, Collection<? extends K> keys) {
+        return require(whiteboard.awaitReady(keys));
+    }
+
+    /**
+     * Requires an arbitrary condition, typically obtained from {@link AbstractWhiteboard#awaitReady(java.util.function.BooleanSupplier)}.
+     *
+     * @param condition the condition
+     * @return this barrier
+     */
+    public ReadinessBarrier require(CompletableFuture<Void> condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * Returns a future which completes once all of the conditions have been satisfied.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> toFuture() {
+        return CompletableFuture.allOf(conditions.toArray(new CompletableFuture<?>[conditions.size()]));
+    }
+}
@@ -19,6 +19,7 @@ package com.savoirtech.eos.pattern.whiteboard;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
+import com.savoirtech.eos.metrics.Metrics;
 import com.savoirtech.eos.util.ServiceProperties;
 import org.apache.commons.lang3.ObjectUtils;
 import org.osgi.framework.BundleContext;
@@ -29,6 +30,8 @@ public class SingleWhiteboard<S> extends AbstractWhiteboard<S, S> {
 //----------------------------------------------------------------------------------------------------------------------
 
     private final AtomicReference<S> reference = new AtomicReference<S>();
+    private volatile Metrics.Counter hits = Metrics.NONE.counter("lookup.hit");
+    private volatile Metrics.Counter misses = Metrics.NONE.counter("lookup.miss");
 
 //----------------------------------------------------------------------------------------------------------------------
 // Constructors
@@ -39,6 +42,23 @@ public class SingleWhiteboard<S> extends AbstractWhiteboard<S, S> {
         start();
     }
 
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Sets the metrics used by this whiteboard.  In addition to those recorded by all whiteboards, the counters
+     * {@code lookup.hit} and {@code lookup.miss} record whether {@link #getService()} found a service.
+     *
+     * @param metrics the metrics
+     */
+    @Override
+    public void setMetrics(Metrics metrics) {
+        super.setMetrics(metrics);
+        this.hits = metrics.counter("lookup.hit");
+        this.misses = metrics.counter("lookup.miss");
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Other Methods
 //----------------------------------------------------------------------------------------------------------------------
@@ -52,7 +72,9 @@ public class SingleWhiteboard<S> extends AbstractWhiteboard<S, S> {
     }
 
     public S getService() {
-        return reference.get();
+        final S service = reference.get();
+        (service == null ? misses : hits).increment();
+        return service;
     }
 
     public S getService(S defaultValue) {
@@ -65,6 +87,6 @@ public class SingleWhiteboard<S> extends AbstractWhiteboard<S, S> {
 
     @Override
     protected void removeService(S service, S tracked) {
-        reference.set(null);
+        reference.compareAndSet(tracked, null);
     }
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import com.savoirtech.eos.util.ServiceProperties;
+
+/**
+ * Describes a change to the set of services tracked by an {@link AbstractWhiteboard}.
+ *
+ * @param <S> the service type
+ */
+public final class WhiteboardEvent<S> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final Type type;
+    private final S service;
+    private final ServiceProperties props;
+    private final long version;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public WhiteboardEvent(Type type, S service, ServiceProperties props, long version) {
+        this.type = type;
+        this.service = service;
+        this.props = props;
+        this.version = version;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the service properties.  For {@link Type#REMOVED} events these are the properties the service was last
+     * accepted with.
+     *
+     * @return the service properties
+     */
+    public ServiceProperties getProps() {
+        return props;
+    }
+
+    public S getService() {
+        return service;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the whiteboard version (see {@link AbstractWhiteboard#getVersion()}) resulting from this change.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Canonical Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public String toString() {
+        return String.format("%s service %s (version %d)", type, props.getServiceId(), version);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public enum Type {
+        ADDED,
+        MODIFIED,
+        REMOVED
+    }
+}
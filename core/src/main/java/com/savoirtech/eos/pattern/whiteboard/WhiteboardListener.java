@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+/**
+ * Receives notifications when the set of services tracked by an {@link AbstractWhiteboard} changes.  Listeners are
+ * called synchronously on the thread delivering the OSGi service event, after the whiteboard's own state has been
+ * updated, so they should return quickly.
+ *
+ * @param <S> the service type
+ */
+@FunctionalInterface
+public interface WhiteboardListener<S> {
+    void whiteboardChanged(WhiteboardEvent<S> event);
+}
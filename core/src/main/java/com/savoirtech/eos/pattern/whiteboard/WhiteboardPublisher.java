@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Reactive Streams {@link Publisher} of the lifecycle events of an {@link AbstractWhiteboard}.  Each subscriber
+ * first receives an {@link WhiteboardEvent.Type#ADDED} event for every service currently tracked by the whiteboard,
+ * followed by the live stream of changes.
+ * <p>
+ * Events are buffered per subscriber and delivered on the supplied {@link Executor} according to the subscriber's
+ * demand, so a slow subscriber never blocks the thread delivering OSGi service events.  A subscriber whose buffer
+ * overflows is terminated with an {@link IllegalStateException}, since silently dropping lifecycle events would
+ * leave it with an inconsistent view of the whiteboard.  The initial replay does not count against the buffer size,
+ * which only limits undelivered live events (whether or not replayed events are still waiting ahead of them).
+ * <p>
+ * On Java 9 and above, use <code>org.reactivestreams.FlowAdapters</code> to obtain a
+ * <code>java.util.concurrent.Flow.Publisher</code>.
+ *
+ * @param <S> the service type
+ */
+public class WhiteboardPublisher<S> implements Publisher<WhiteboardEvent<S>> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhiteboardPublisher.class);
+
+    private final AbstractWhiteboard<S, ?> whiteboard;
+    private final Executor executor;
+    private final int bufferSize;
+    private final Set<WhiteboardSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Constructs a new WhiteboardPublisher which delivers events using the {@link ForkJoinPool#commonPool()}.
+     *
+     * @param whiteboard the whiteboard
+     */
+    public WhiteboardPublisher(AbstractWhiteboard<S, ?> whiteboard) {
+        this(whiteboard, ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new WhiteboardPublisher.
+     *
+     * @param whiteboard the whiteboard
+     * @param executor   the executor used to deliver events to subscribers
+     * @param bufferSize the maximum number of undelivered events buffered per subscriber
+     */
+    public WhiteboardPublisher(AbstractWhiteboard<S, ?> whiteboard, Executor executor, int bufferSize) {
+        Validate.isTrue(bufferSize > 0, "Buffer size must be positive.");
+        this.whiteboard = whiteboard;
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Publisher Implementation
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Override
+    public void subscribe(Subscriber<? super WhiteboardEvent<S>> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null.");
+        final WhiteboardSubscription subscription = new WhiteboardSubscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.replayThread = Thread.currentThread();
+        try {
+            whiteboard.addWhiteboardListener(subscription, true);
+        } finally {
+            subscription.replayThread = null;
+        }
+        if (subscription.cancelled) {
+            whiteboard.removeWhiteboardListener(subscription);
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Completes all current subscriptions once their buffered events have been delivered.
+     */
+    public void close() {
+        for (WhiteboardSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Returns the number of active subscriptions.
+     *
+     * @return the number of active subscriptions
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    private class WhiteboardSubscription implements Subscription, WhiteboardListener<S> {
+        private final Subscriber<? super WhiteboardEvent<S>> subscriber;
+        private final Queue<WhiteboardEvent<S>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger replayPending = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile Thread replayThread;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile Throwable error;
+
+        WhiteboardSubscription(Subscriber<? super WhiteboardEvent<S>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void whiteboardChanged(WhiteboardEvent<S> event) {
+            if (cancelled || done) {
+                return;
+            }
+            if (Thread.currentThread() == replayThread) {
+                // Replayed events are queued while subscribing, ahead of any live event, and are not limited.
+                replayPending.incrementAndGet();
+            } else if (queued.incrementAndGet() > bufferSize) {
+                fail(new IllegalStateException(String.format("Subscriber %s fell more than %d events behind.", subscriber, bufferSize)));
+                return;
+            }
+            queue.offer(event);
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException(String.format("Requested %d events; requests must be positive.", n)));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                release();
+                schedule();
+            }
+        }
+
+        void complete() {
+            done = true;
+            whiteboard.removeWhiteboardListener(this);
+            schedule();
+        }
+
+        private void fail(Throwable cause) {
+            error = cause;
+            complete();
+        }
+
+        private void release() {
+            whiteboard.removeWhiteboardListener(this);
+            subscriptions.remove(this);
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    LOGGER.error("Unable to deliver whiteboard events to subscriber {}; cancelling subscription.", subscriber, e);
+                    cancelled = true;
+                    release();
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                final long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand && !isTerminated()) {
+                    final WhiteboardEvent<S> event = queue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    // Replayed events are polled first, so this is a live event once none of them are pending.
+                    if (replayPending.get() > 0) {
+                        replayPending.decrementAndGet();
+                    } else {
+                        queued.decrementAndGet();
+                    }
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Subscriber {} failed to handle {}; cancelling subscription.", subscriber, event, e);
+                        cancel();
+                    }
+                    emitted++;
+                }
+                if (isTerminated()) {
+                    queue.clear();
+                    return;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Checks for (and signals) a terminal state; only called from the drain loop.
+         */
+        private boolean isTerminated() {
+            if (cancelled) {
+                return true;
+            }
+            final Throwable cause = error;
+            if (cause != null) {
+                cancelled = true;
+                release();
+                subscriber.onError(cause);
+                return true;
+            }
+            if (done && queue.isEmpty()) {
+                cancelled = true;
+                release();
+                subscriber.onComplete();
+                return true;
+            }
+            return false;
+        }
+    }
+}
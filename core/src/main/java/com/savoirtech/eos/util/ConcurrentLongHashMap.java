@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A concurrent map keyed by primitive <code>long</code> values.  The map is split into a number of independently
+ * locked segments, each of which stores its entries in open-addressing (linear probing) arrays, so no key boxing or
+ * per-entry objects are required.  Reads are performed optimistically and only fall back to a read lock when
+ * they race with a writer.
+ *
+ * @param <V> the value type
+ */
+public class ConcurrentLongHashMap<V> {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static final int DEFAULT_EXPECTED_ITEMS = 256;
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private static final float FILL_FACTOR = 0.66f;
+    private static final int MIN_SEGMENT_CAPACITY = 4;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static int hash(long key) {
+        // Murmur3 64-bit finalizer; service ids are sequential, so they need a good spread.
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int alignToPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Segment<V>[] newSegments(int segmentCount) {
+        // Generic array creation isn't allowed; the segments are only ever populated with Segment<V> instances.
+        return (Segment<V>[]) new Segment<?>[segmentCount];
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public ConcurrentLongHashMap() {
+        this(DEFAULT_EXPECTED_ITEMS, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public ConcurrentLongHashMap(int expectedItems) {
+        this(expectedItems, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new map sized to hold the expected number of items without resizing.
+     *
+     * @param expectedItems    the expected number of items
+     * @param concurrencyLevel the (approximate) number of concurrently updating threads
+     */
+    public ConcurrentLongHashMap(int expectedItems, int concurrencyLevel) {
+        Validate.isTrue(expectedItems > 0, "Expected items must be positive.");
+        Validate.isTrue(concurrencyLevel > 0, "Concurrency level must be positive.");
+        final int segmentCount = alignToPowerOfTwo(concurrencyLevel);
+        final int perSegment = (int) Math.ceil(expectedItems / (double) segmentCount / FILL_FACTOR);
+        final int segmentCapacity = Math.max(MIN_SEGMENT_CAPACITY, alignToPowerOfTwo(perSegment));
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.segments = newSegments(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Removes all entries from this map.
+     */
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Invokes the processor for every entry in this map.  Each segment is copied under its read lock before the
+     * processor is called, so the processor is free to modify this map.
+     *
+     * @param processor the entry processor
+     */
+    public void forEach(EntryProcessor<? super V> processor) {
+        for (Segment<V> segment : segments) {
+            segment.forEach(processor);
+        }
+    }
+
+    /**
+     * Returns the value mapped to the key.
+     *
+     * @param key the key
+     * @return the value (or null if the key is not mapped)
+     */
+    public V get(long key) {
+        final int h = hash(key);
+        return segmentFor(h).get(key, h);
+    }
+
+    public boolean isEmpty() {
+        for (Segment<V> segment : segments) {
+            if (segment.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps the key to the value.
+     *
+     * @param key   the key
+     * @param value the value (must not be null)
+     * @return the previous value (or null if the key was not mapped)
+     */
+    public V put(long key, V value) {
+        Validate.notNull(value, "Null values are not supported.");
+        final int h = hash(key);
+        return segmentFor(h).put(key, value, h, false);
+    }
+
+    /**
+     * Maps the key to the value only if the key is not already mapped.
+     *
+     * @param key   the key
+     * @param value the value (must not be null)
+     * @return the existing value (or null if the value was added)
+     */
+    public V putIfAbsent(long key, V value) {
+        Validate.notNull(value, "Null values are not supported.");
+        final int h = hash(key);
+        return segmentFor(h).put(key, value, h, true);
+    }
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @param key the key
+     * @return the removed value (or null if the key was not mapped)
+     */
+    public V remove(long key) {
+        final int h = hash(key);
+        return segmentFor(h).remove(key, h);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Returns a snapshot of the values currently contained in this map.
+     *
+     * @return the values
+     */
+    public List<V> values() {
+        final List<V> values = new ArrayList<>(size());
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Callback used to visit the entries of a {@link ConcurrentLongHashMap}.
+     *
+     * @param <V> the value type
+     */
+    @FunctionalInterface
+    public interface EntryProcessor<V> {
+        void accept(long key, V value);
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Segment<V> extends StampedLock {
+        private volatile long[] keys;
+        private volatile Object[] values;
+        private volatile int size;
+        private int resizeThreshold;
+
+        Segment(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.resizeThreshold = (int) (capacity * FILL_FACTOR);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key, int hash) {
+            long stamp = tryOptimisticRead();
+            V value = (V) find(keys, values, key, hash);
+            if (!validate(stamp)) {
+                stamp = readLock();
+                try {
+                    value = (V) find(keys, values, key, hash);
+                } finally {
+                    unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, V value, int hash, boolean onlyIfAbsent) {
+            final long stamp = writeLock();
+            try {
+                long[] k = keys;
+                Object[] v = values;
+                final int mask = k.length - 1;
+                int index = hash & mask;
+                while (v[index] != null) {
+                    if (k[index] == key) {
+                        final V previous = (V) v[index];
+                        if (!onlyIfAbsent) {
+                            v[index] = value;
+                        }
+                        return previous;
+                    }
+                    index = (index + 1) & mask;
+                }
+                k[index] = key;
+                v[index] = value;
+                if (++size > resizeThreshold) {
+                    rehash(k.length * 2);
+                }
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, int hash) {
+            final long stamp = writeLock();
+            try {
+                final long[] k = keys;
+                final Object[] v = values;
+                final int mask = k.length - 1;
+                int index = hash & mask;
+                while (v[index] != null) {
+                    if (k[index] == key) {
+                        final V previous = (V) v[index];
+                        shiftBackward(k, v, index);
+                        size--;
+                        return previous;
+                    }
+                    index = (index + 1) & mask;
+                }
+                return null;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            final long stamp = writeLock();
+            try {
+                keys = new long[keys.length];
+                values = new Object[values.length];
+                size = 0;
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void forEach(EntryProcessor<? super V> processor) {
+            final long[] k;
+            final Object[] v;
+            final long stamp = readLock();
+            try {
+                k = keys.clone();
+                v = values.clone();
+            } finally {
+                unlockRead(stamp);
+            }
+            for (int i = 0; i < v.length; i++) {
+                if (v[i] != null) {
+                    processor.accept(k[i], (V) v[i]);
+                }
+            }
+        }
+
+        private static Object find(long[] k, Object[] v, long key, int hash) {
+            // The arrays may be replaced or mutated by a writer during an optimistic read, so never probe further than
+            // the capacity of the array we started with; the caller re-validates the stamp afterwards.
+            final int capacity = Math.min(k.length, v.length);
+            final int mask = capacity - 1;
+            int index = hash & mask;
+            for (int probes = 0; probes < capacity; probes++) {
+                final Object value = v[index];
+                if (value == null) {
+                    return null;
+                }
+                if (k[index] == key) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Closes the gap left by a removed entry by shifting subsequent entries of the same probe sequence back, so
+         * that no tombstones are needed.
+         */
+        private static void shiftBackward(long[] k, Object[] v, int gap) {
+            final int mask = k.length - 1;
+            int index = gap;
+            while (true) {
+                index = (index + 1) & mask;
+                if (v[index] == null) {
+                    break;
+                }
+                final int ideal = hash(k[index]) & mask;
+                final boolean movable = gap <= index ? (ideal <= gap || ideal > index) : (ideal <= gap && ideal > index);
+                if (movable) {
+                    k[gap] = k[index];
+                    v[gap] = v[index];
+                    gap = index;
+                }
+            }
+            v[gap] = null;
+            k[gap] = 0L;
+        }
+
+        private void rehash(int capacity) {
+            final long[] oldKeys = keys;
+            final Object[] oldValues = values;
+            final long[] newKeys = new long[capacity];
+            final Object[] newValues = new Object[capacity];
+            final int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    int index = hash(oldKeys[i]) & mask;
+                    while (newValues[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    newKeys[index] = oldKeys[i];
+                    newValues[index] = oldValues[i];
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+            resizeThreshold = (int) (capacity * FILL_FACTOR);
+        }
+    }
+}
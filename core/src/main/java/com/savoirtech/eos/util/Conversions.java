@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.util;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Conversions of (possibly string-encoded) OSGi service/configuration property values to the types used by Eos
+ * components.  All methods throw {@link IllegalArgumentException} when a value cannot be converted.
+ */
+public final class Conversions {
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    private Conversions() {
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        final String text = StringUtils.trimToEmpty(String.valueOf(value));
+        if ("true".equalsIgnoreCase(text)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(text)) {
+            return false;
+        }
+        throw new IllegalArgumentException(String.format("Value \"%s\" is not a boolean.", value));
+    }
+
+    /**
+     * Converts a value to a {@link Duration}.  Numbers are interpreted as milliseconds; strings may either be
+     * ISO-8601 durations (<code>PT30S</code>), plain millisecond counts (<code>1500</code>) or a number followed by
+     * one of the units <code>ms</code>, <code>s</code>, <code>m</code>, <code>h</code> or <code>d</code>
+     * (<code>30s</code>).
+     *
+     * @param value the value
+     * @return the duration
+     */
+    public static Duration toDuration(Object value) {
+        if (value instanceof Duration) {
+            return (Duration) value;
+        }
+        if (value instanceof Number) {
+            return Duration.ofMillis(((Number) value).longValue());
+        }
+        final String text = StringUtils.trimToEmpty(String.valueOf(value)).toLowerCase(Locale.ENGLISH);
+        try {
+            if (text.startsWith("p")) {
+                return Duration.parse(text.toUpperCase(Locale.ENGLISH));
+            }
+            int unitStart = text.length();
+            while (unitStart > 0 && Character.isLetter(text.charAt(unitStart - 1))) {
+                unitStart--;
+            }
+            final long amount = Long.parseLong(text.substring(0, unitStart).trim());
+            switch (text.substring(unitStart)) {
+                case "":
+                case "ms":
+                    return Duration.ofMillis(amount);
+                case "s":
+                    return Duration.ofSeconds(amount);
+                case "m":
+                    return Duration.ofMinutes(amount);
+                case "h":
+                    return Duration.ofHours(amount);
+                case "d":
+                    return Duration.ofDays(amount);
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Value \"%s\" is not a duration.", value), e);
+        }
+        throw new IllegalArgumentException(String.format("Value \"%s\" is not a duration.", value));
+    }
+
+    /**
+     * Converts a value to an enum constant, matching names case-insensitively.
+     *
+     * @param value    the value
+     * @param enumType the enum type
+     * @param <E>      the enum type
+     * @return the enum constant
+     */
+    public static <E extends Enum<E>> E toEnum(Object value, Class<E> enumType) {
+        if (enumType.isInstance(value)) {
+            return enumType.cast(value);
+        }
+        final String text = StringUtils.trimToEmpty(String.valueOf(value));
+        for (E constant : enumType.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(text)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Value \"%s\" is not one of %s.", value, Arrays.toString(enumType.getEnumConstants())));
+    }
+
+    public static int toInt(Object value) {
+        if (value instanceof Number) {
+            final long longValue = ((Number) value).longValue();
+            if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Value \"%s\" is out of range for an integer.", value));
+            }
+            return (int) longValue;
+        }
+        try {
+            return Integer.parseInt(StringUtils.trimToEmpty(String.valueOf(value)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Value \"%s\" is not an integer.", value), e);
+        }
+    }
+
+    /**
+     * Converts a value to a list of strings.  Arrays and collections are converted element by element; strings are
+     * split on commas.
+     *
+     * @param value the value
+     * @return the list (never null)
+     */
+    public static List<String> toList(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        final List<String> list = new ArrayList<>();
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                list.add(String.valueOf(element));
+            }
+        } else if (value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                list.add(String.valueOf(Array.get(value, i)));
+            }
+        } else {
+            for (String element : StringUtils.split(String.valueOf(value), ',')) {
+                final String trimmed = element.trim();
+                if (!trimmed.isEmpty()) {
+                    list.add(trimmed);
+                }
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    public static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(StringUtils.trimToEmpty(String.valueOf(value)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Value \"%s\" is not a long.", value), e);
+        }
+    }
+}
@@ -16,16 +16,55 @@
 
 package com.savoirtech.eos.util;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
 import org.osgi.framework.Bundle;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 
+/**
+ * A view of the properties of an OSGi service.  Instances created using the constructor read through to the
+ * {@link ServiceReference} on every call, whereas instances created using {@link #snapshot(ServiceReference)} copy
+ * the properties once and are immutable thereafter, which avoids locking in the framework on each lookup.
+ * Snapshots also cache the results of converting string-encoded values via the typed accessors.
+ */
 public class ServiceProperties {
 //----------------------------------------------------------------------------------------------------------------------
 // Fields
 //----------------------------------------------------------------------------------------------------------------------
 
     private final ServiceReference<?> serviceReference;
+    private final Map<String, Object> properties;
+    private final ConcurrentMap<String, Object> conversions;
+    private final Bundle bundle;
+    private final Long serviceId;
+    private final int serviceRanking;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Creates an immutable snapshot of the service reference's current properties.  As with the service reference
+     * itself, keys are looked up case-insensitively.
+     *
+     * @param serviceReference the service reference
+     * @return the snapshot
+     */
+    public static ServiceProperties snapshot(ServiceReference<?> serviceReference) {
+        final String[] keys = serviceReference.getPropertyKeys();
+        final Map<String, Object> properties = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String key : keys) {
+            properties.put(key, serviceReference.getProperty(key));
+        }
+        return new ServiceProperties(serviceReference, Collections.unmodifiableMap(properties));
+    }
 
 //----------------------------------------------------------------------------------------------------------------------
 // Constructors
@@ -33,19 +72,143 @@ public class ServiceProperties {
 
     public ServiceProperties(ServiceReference<?> serviceReference) {
         this.serviceReference = serviceReference;
+        this.properties = null;
+        this.conversions = null;
+        this.bundle = null;
+        this.serviceId = null;
+        this.serviceRanking = 0;
+    }
+
+    private ServiceProperties(ServiceReference<?> serviceReference, Map<String, Object> properties) {
+        this.serviceReference = serviceReference;
+        this.properties = properties;
+        this.conversions = new ConcurrentHashMap<>(4, 0.75f, 1);
+        this.bundle = serviceReference.getBundle();
+        this.serviceId = (Long) properties.get(Constants.SERVICE_ID);
+        final Object ranking = properties.get(Constants.SERVICE_RANKING);
+        this.serviceRanking = ranking instanceof Integer ? (Integer) ranking : 0;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public ServiceReference<?> getServiceReference() {
+        return serviceReference;
     }
 
 //----------------------------------------------------------------------------------------------------------------------
 // Other Methods
 //----------------------------------------------------------------------------------------------------------------------
 
+    /**
+     * Returns the service properties as a map.  For snapshots, this is the (unmodifiable) snapshot itself; otherwise
+     * a new map is built from the service reference.
+     *
+     * @return the service properties
+     */
+    public Map<String, Object> asMap() {
+        if (properties != null) {
+            return properties;
+        }
+        final Map<String, Object> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String key : serviceReference.getPropertyKeys()) {
+            map.put(key, serviceReference.getProperty(key));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
     /**
      * Returns the bundle corresponding to the service.
      *
      * @return the bundle corresponding to the service
      */
     public Bundle getBundle() {
-        return serviceReference.getBundle();
+        return properties != null ? bundle : serviceReference.getBundle();
+    }
+
+    /**
+     * Returns the service property as a boolean.  String values are parsed ("true"/"false", ignoring case).
+     *
+     * @param key          the service property key
+     * @param defaultValue the value returned if the property is not present
+     * @return the property value or the default value
+     * @throws IllegalArgumentException if the property value cannot be converted
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        final Object value = getRawProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Boolean ? (Boolean) value : convert(key, value, Boolean.class, Conversions::toBoolean);
+    }
+
+    /**
+     * Returns the service property as a {@link Duration}.  See {@link Conversions#toDuration(Object)} for the
+     * supported formats.
+     *
+     * @param key          the service property key
+     * @param defaultValue the value returned if the property is not present
+     * @return the property value or the default value
+     * @throws IllegalArgumentException if the property value cannot be converted
+     */
+    public Duration getDuration(String key, Duration defaultValue) {
+        final Object value = getRawProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return convert(key, value, Duration.class, Conversions::toDuration);
+    }
+
+    /**
+     * Returns the service property as an enum constant, matching names case-insensitively.
+     *
+     * @param key          the service property key
+     * @param enumType     the enum type
+     * @param defaultValue the value returned if the property is not present
+     * @param <E>          the enum type
+     * @return the property value or the default value
+     * @throws IllegalArgumentException if the property value cannot be converted
+     */
+    public <E extends Enum<E>> E getEnum(String key, Class<E> enumType, E defaultValue) {
+        final Object value = getRawProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return convert(key, value, enumType, v -> Conversions.toEnum(v, enumType));
+    }
+
+    /**
+     * Returns the service property as an int.  String values are parsed, and other numbers are converted provided
+     * that they fit.
+     *
+     * @param key          the service property key
+     * @param defaultValue the value returned if the property is not present
+     * @return the property value or the default value
+     * @throws IllegalArgumentException if the property value cannot be converted (or is out of range)
+     */
+    public int getInt(String key, int defaultValue) {
+        final Object value = getRawProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Integer ? (Integer) value : convert(key, value, Integer.class, Conversions::toInt);
+    }
+
+    /**
+     * Returns the service property as a long.  String values are parsed.
+     *
+     * @param key          the service property key
+     * @param defaultValue the value returned if the property is not present
+     * @return the property value or the default value
+     * @throws IllegalArgumentException if the property value cannot be converted
+     */
+    public long getLong(String key, long defaultValue) {
+        final Object value = getRawProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : convert(key, value, Long.class, Conversions::toLong);
     }
 
     public <T> T getProperty(String key) {
@@ -63,12 +226,12 @@ public class ServiceProperties {
      */
     @SuppressWarnings("unchecked")
     public <T> T getProperty(String key, T defaultValue) {
-        T value = (T) serviceReference.getProperty(key);
+        T value = (T) getRawProperty(key);
         return value == null ? defaultValue : value;
     }
 
     public Long getServiceId() {
-        return getProperty(Constants.SERVICE_ID);
+        return properties != null ? serviceId : getProperty(Constants.SERVICE_ID);
     }
 
     public String getServicePid() {
@@ -76,6 +239,37 @@ public class ServiceProperties {
     }
 
     public int getServiceRanking() {
-        return getProperty(Constants.SERVICE_RANKING, 0);
+        return properties != null ? serviceRanking : getProperty(Constants.SERVICE_RANKING, 0);
+    }
+
+    /**
+     * Returns true if this object is an immutable snapshot (see {@link #snapshot(ServiceReference)}).
+     *
+     * @return true if this object is a snapshot
+     */
+    public boolean isSnapshot() {
+        return properties != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(asMap());
+    }
+
+    private Object getRawProperty(String key) {
+        return properties != null ? properties.get(key) : serviceReference.getProperty(key);
+    }
+
+    private <V> V convert(String key, Object value, Class<V> type, Function<Object, V> converter) {
+        if (conversions == null) {
+            return converter.apply(value);
+        }
+        final Object cached = conversions.get(key);
+        if (type.isInstance(cached)) {
+            return type.cast(cached);
+        }
+        final V converted = converter.apply(value);
+        conversions.put(key, converted);
+        return converted;
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.savoirtech.eos.test.MockObjectTestCase;
+import org.junit.Test;
+
+public class LongAdderMetricsTest extends MockObjectTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testCounter() {
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        metrics.counter("added").increment();
+        metrics.counter("added").increment();
+        assertSame(metrics.counter("added"), metrics.counter("added"));
+        assertEquals(2, metrics.counter("added").getCount());
+    }
+
+    @Test
+    public void testTimer() {
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        LongAdderMetrics.LongAdderTimer timer = metrics.timer("addService");
+        timer.record(100);
+        timer.record(300);
+        assertEquals(2, timer.getCount());
+        assertEquals(400, timer.getTotalNanos());
+        assertEquals(300, timer.getMaxNanos());
+        assertEquals(200.0, timer.getMeanNanos(), 0.0);
+    }
+
+    @Test
+    public void testReset() {
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        metrics.counter("added").increment();
+        metrics.timer("addService").record(100);
+        metrics.reset();
+        assertEquals(0, metrics.counter("added").getCount());
+        assertEquals(0, metrics.timer("addService").getMaxNanos());
+        assertEquals(0.0, metrics.timer("addService").getMeanNanos(), 0.0);
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void testUnknownAttribute() throws Exception {
+        new LongAdderMetrics().getAttribute("missing.count");
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        metrics.counter("lookup.hit").increment();
+        metrics.timer("fire").record(50);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.savoirtech.eos:type=Test,name=" + getClass().getSimpleName());
+        server.registerMBean(metrics, name);
+        try {
+            assertEquals(1L, server.getAttribute(name, "lookup.hit"));
+            assertEquals(1L, server.getAttribute(name, "fire.count"));
+            assertEquals(50L, server.getAttribute(name, "fire.maxNanos"));
+            assertEquals(5, server.getMBeanInfo(name).getAttributes().length);
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "lookup.hit"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
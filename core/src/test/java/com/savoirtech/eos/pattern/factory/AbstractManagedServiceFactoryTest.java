@@ -16,17 +16,39 @@
 
 package com.savoirtech.eos.pattern.factory;
 
+import com.savoirtech.eos.metrics.LongAdderMetrics;
 import com.savoirtech.eos.test.MockObjectTestCase;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceFactory;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.cm.ConfigurationException;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Mockito.*;
@@ -46,10 +68,17 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
     @Mock
     private ServiceReference<HelloService> serviceReference;
 
+    @Mock
+    private Bundle consumer;
+
     private HelloManagedServiceFactory msf;
 
     private AtomicInteger destroyCount = new AtomicInteger();
 
+    private List<HelloService> destroyed = new CopyOnWriteArrayList<>();
+
+    private CountDownLatch callLatch = new CountDownLatch(0);
+
     private Hashtable<String, Object> serviceProperties = new Hashtable<>();
 
 //----------------------------------------------------------------------------------------------------------------------
@@ -62,6 +91,7 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
         msf = new HelloManagedServiceFactory(bundleContext);
 
         when(bundleContext.registerService(eq(HelloService.class), isA(HelloService.class), isA(Dictionary.class))).thenReturn(serviceRegistration);
+        when(bundleContext.registerService(eq(HelloService.class.getName()), isA(ServiceFactory.class), isA(Dictionary.class))).thenReturn((org.osgi.framework.ServiceRegistration) serviceRegistration);
         when(serviceRegistration.getReference()).thenReturn(serviceReference);
     }
 
@@ -102,7 +132,7 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
         msf.updated("pid", configProperties);
 
         ArgumentCaptor<HelloService> captor = ArgumentCaptor.forClass(HelloService.class);
-        verify(bundleContext).getService(serviceReference);
+        verify(bundleContext, never()).getService(serviceReference);
         verify(serviceRegistration).unregister();
         verify(bundleContext, times(2)).registerService(eq(HelloService.class), captor.capture(), same(serviceProperties));
         final HelloService service = captor.getValue();
@@ -110,6 +140,728 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
         assertEquals(1, destroyCount.get());
     }
 
+    @Test
+    public void testSwapRegistersBeforeUnregistering() throws Exception {
+        ArgumentCaptor<HelloService> captor = ArgumentCaptor.forClass(HelloService.class);
+        msf.setUpdateStrategy(AbstractManagedServiceFactory.UpdateStrategy.SWAP);
+
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        msf.updated("pid", configProperties);
+        verify(bundleContext).registerService(eq(HelloService.class), captor.capture(), same(serviceProperties));
+
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+
+        InOrder inOrder = inOrder(bundleContext, serviceRegistration);
+        inOrder.verify(bundleContext, times(2)).registerService(eq(HelloService.class), captor.capture(), same(serviceProperties));
+        inOrder.verify(serviceRegistration).unregister();
+        assertTrue(captor.getValue() instanceof HelloServiceImpl);
+        assertEquals("Hola, Slappy!", captor.getValue().sayHello("Slappy"));
+        assertEquals(1, destroyed.size());
+        assertTrue(destroyed.get(0) instanceof HelloServiceImpl);
+        assertEquals("Hello, Slappy!", destroyed.get(0).sayHello("Slappy"));
+    }
+
+    @Test
+    public void testSwapDrainsCallsInFlight() throws Exception {
+        ArgumentCaptor<HelloService> captor = ArgumentCaptor.forClass(HelloService.class);
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                return new DrainableHelloService(getProperty("greetingPattern", configProperties, "Hello, %s!"));
+            }
+        };
+        msf.setUpdateStrategy(AbstractManagedServiceFactory.UpdateStrategy.SWAP);
+        msf.setDrainTimeout(Duration.ofSeconds(10));
+        msf.updated("pid", new Hashtable<>());
+        verify(bundleContext).registerService(eq(HelloService.class), captor.capture(), same(serviceProperties));
+        final HelloService registered = captor.getValue();
+
+        callLatch = new CountDownLatch(1);
+        final CountDownLatch callStarted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> call = executor.submit(() -> {
+            callStarted.countDown();
+            return registered.sayHello("Slappy");
+        });
+        assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+        final Drainable drainable = (Drainable) registered;
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (drainable.getInFlight() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        Future<?> swap = executor.submit(() -> {
+            msf.updated("pid", configProperties);
+            return null;
+        });
+
+        Thread.sleep(200);
+        assertEquals(0, destroyCount.get());
+        callLatch.countDown();
+        assertEquals("Hello, Slappy!", call.get(5, TimeUnit.SECONDS));
+        swap.get(5, TimeUnit.SECONDS);
+        assertEquals(1, destroyCount.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testUnchangedConfigurationIsIgnored() throws Exception {
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        configProperties.put("felix.fileinstall.filename", "file:/etc/hello-1.cfg");
+        msf.updated("pid", configProperties);
+
+        final Dictionary<String, Object> redelivered = new Hashtable<>();
+        redelivered.put("greetingPattern", "Hola, %s!");
+        redelivered.put("felix.fileinstall.filename", "file:/etc/hello-2.cfg");
+        msf.updated("pid", redelivered);
+
+        verify(bundleContext).registerService(eq(HelloService.class), isA(HelloService.class), same(serviceProperties));
+        verify(serviceRegistration, never()).unregister();
+        assertEquals(0, destroyCount.get());
+    }
+
+    @Test
+    public void testReconfigureInPlace() throws Exception {
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected boolean reconfigure(String pid, HelloService service, Dictionary<String, ?> oldConfig, Dictionary<String, ?> newConfig) throws ConfigurationException {
+                assertNull(oldConfig.get("greetingPattern"));
+                ((HelloServiceImpl) service).greetingPattern = getProperty("greetingPattern", newConfig);
+                return true;
+            }
+        };
+        ArgumentCaptor<HelloService> captor = ArgumentCaptor.forClass(HelloService.class);
+        msf.updated("pid", new Hashtable<>());
+
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+
+        verify(bundleContext).registerService(eq(HelloService.class), captor.capture(), same(serviceProperties));
+        verify(serviceRegistration).setProperties(same(serviceProperties));
+        verify(serviceRegistration, never()).unregister();
+        assertEquals("Hola, Slappy!", captor.getValue().sayHello("Slappy"));
+        assertEquals(0, destroyCount.get());
+    }
+
+    @Test
+    public void testAsyncCreation() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        msf.setExecutor(executor);
+        for (int i = 0; i < 20; i++) {
+            msf.updated("pid-" + i, new Hashtable<>());
+        }
+        msf.awaitPending().get(10, TimeUnit.SECONDS);
+        verify(bundleContext, times(20)).registerService(eq(HelloService.class), isA(HelloService.class), same(serviceProperties));
+        assertEquals(0, msf.getPendingCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncPreservesOrderPerPid() throws Exception {
+        final List<String> patterns = new CopyOnWriteArrayList<>();
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                final String pattern = getProperty("greetingPattern", configProperties);
+                if (pattern.startsWith("Hello")) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                patterns.add(pattern);
+                return super.newService(pid, configProperties);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        msf.setExecutor(executor);
+
+        final Dictionary<String, Object> english = new Hashtable<>();
+        english.put("greetingPattern", "Hello, %s!");
+        final Dictionary<String, Object> spanish = new Hashtable<>();
+        spanish.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", english);
+        msf.deleted("pid");
+        msf.updated("pid", spanish);
+        msf.awaitPending().get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("Hello, %s!", "Hola, %s!"), patterns);
+        assertEquals(1, destroyCount.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAsyncFailureIsReported() throws Exception {
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                return new HelloServiceImpl(getProperty("greetingPattern", configProperties));
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        msf.setExecutor(executor);
+        msf.updated("pid", new Hashtable<>());
+        try {
+            msf.awaitPending().get(10, TimeUnit.SECONDS);
+            fail("Expected the pending update to fail.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ConfigurationException);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRejectedWorkIsReported() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                started.countDown();
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.newService(pid, configProperties);
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        msf.setExecutor(executor);
+        msf.updated("pid", new Hashtable<>());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+        executor.shutdown();
+
+        final Future<Void> pendingWork = msf.awaitPending();
+        gate.countDown();
+        try {
+            pendingWork.get(5, TimeUnit.SECONDS);
+            fail("Expected the pending update to be rejected.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, msf.getPendingCount());
+        assertEquals(1, msf.createCount.get());
+    }
+
+    @Test
+    public void testDebounceAppliesLastUpdate() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        msf.setScheduler(scheduler);
+        msf.setDebounceWindow(Duration.ofMillis(100));
+        for (int i = 0; i < 5; i++) {
+            final Dictionary<String, Object> configProperties = new Hashtable<>();
+            configProperties.put("greetingPattern", "Hello #" + i + ", %s!");
+            msf.updated("pid", configProperties);
+        }
+        assertEquals(1, msf.getPendingCount());
+        msf.awaitPending().get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<HelloService> captor = ArgumentCaptor.forClass(HelloService.class);
+        verify(bundleContext).registerService(eq(HelloService.class), captor.capture(), same(serviceProperties));
+        assertEquals("Hello #4, Slappy!", captor.getValue().sayHello("Slappy"));
+        assertEquals(1, msf.createCount.get());
+        assertEquals(0, msf.getPendingCount());
+        scheduler.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDebounceRequiresScheduler() {
+        msf.setDebounceWindow(Duration.ofMillis(100));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSchedulerCannotBeRemovedWhileDebouncing() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            msf.setScheduler(scheduler);
+            msf.setDebounceWindow(Duration.ofMillis(100));
+            msf.setScheduler(null);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testDebounceDeleteMidBurst() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        msf.updated("pid", new Hashtable<>());
+        msf.setScheduler(scheduler);
+        msf.setDebounceWindow(Duration.ofMillis(50));
+
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+        msf.deleted("pid");
+        msf.awaitPending().get(5, TimeUnit.SECONDS);
+
+        verify(serviceRegistration).unregister();
+        assertEquals(1, msf.createCount.get());
+        assertEquals(1, destroyCount.get());
+        assertNull(msf.getLifecycleState("pid"));
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testDebounceUpdateAfterDelete() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        msf.updated("pid", new Hashtable<>());
+        msf.setScheduler(scheduler);
+        msf.setDebounceWindow(Duration.ofMillis(50));
+
+        msf.deleted("pid");
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+        msf.awaitPending().get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<HelloService> captor = ArgumentCaptor.forClass(HelloService.class);
+        verify(bundleContext, times(2)).registerService(eq(HelloService.class), captor.capture(), same(serviceProperties));
+        assertEquals("Hola, Slappy!", captor.getValue().sayHello("Slappy"));
+        assertEquals(AbstractManagedServiceFactory.LifecycleState.ACTIVE, msf.getLifecycleState("pid"));
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testReconcile() throws Exception {
+        final Dictionary<String, Object> hello = new Hashtable<>();
+        hello.put("greetingPattern", "Hello, %s!");
+        final Dictionary<String, Object> hola = new Hashtable<>();
+        hola.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid-a", hello);
+        msf.updated("pid-b", hello);
+        msf.updated("pid-c", hello);
+
+        final Map<String, Dictionary<String, Object>> desired = new HashMap<>();
+        desired.put("pid-a", hello);
+        desired.put("pid-b", hola);
+        desired.put("pid-d", hola);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final AbstractManagedServiceFactory.ReconcileSummary summary = msf.reconcile(desired, executor, 2).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, summary.getCreated());
+        assertEquals(1, summary.getUpdated());
+        assertEquals(1, summary.getDeleted());
+        assertEquals(1, summary.getUnchanged());
+        assertTrue(summary.getFailures().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList("pid-a", "pid-b", "pid-d")), msf.getLifecycleStatus().keySet());
+        verify(bundleContext, times(5)).registerService(eq(HelloService.class), isA(HelloService.class), same(serviceProperties));
+        verify(serviceRegistration, times(2)).unregister();
+        assertEquals(2, destroyCount.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testReconcileReportsFailures() throws Exception {
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                return new HelloServiceImpl(getProperty("greetingPattern", configProperties));
+            }
+        };
+        final Dictionary<String, Object> hello = new Hashtable<>();
+        hello.put("greetingPattern", "Hello, %s!");
+        final Map<String, Dictionary<String, Object>> desired = new HashMap<>();
+        desired.put("pid-1", hello);
+        desired.put("pid-2", new Hashtable<>());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        msf.setExecutor(executor);
+        final AbstractManagedServiceFactory.ReconcileSummary summary = msf.reconcile(desired).get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, summary.getCreated());
+        assertEquals(Collections.singleton("pid-2"), summary.getFailures().keySet());
+        assertTrue(summary.getFailures().get("pid-2") instanceof ConfigurationException);
+        assertTrue(summary.toString().contains("1 failed"));
+        executor.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReconcileRequiresExecutor() {
+        msf.reconcile(Collections.emptyMap());
+    }
+
+    @Test
+    public void testSynchronousUpdateWaitsForReconcile() throws Exception {
+        final List<String> patterns = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                final String pattern = getProperty("greetingPattern", configProperties);
+                if (patterns.isEmpty()) {
+                    started.countDown();
+                    try {
+                        gate.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                patterns.add(pattern);
+                return new HelloServiceImpl(pattern);
+            }
+        };
+        final Dictionary<String, Object> hello = new Hashtable<>();
+        hello.put("greetingPattern", "Hello, %s!");
+        final Dictionary<String, Object> hola = new Hashtable<>();
+        hola.put("greetingPattern", "Hola, %s!");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<AbstractManagedServiceFactory.ReconcileSummary> reconciled = msf.reconcile(Collections.singletonMap("pid", hello), executor, 1);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final Thread updater = new Thread(() -> {
+            try {
+                msf.updated("pid", hola);
+            } catch (ConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        updater.start();
+        updater.join(100);
+        assertTrue(updater.isAlive());
+        gate.countDown();
+        updater.join(5000);
+
+        assertFalse(updater.isAlive());
+        assertEquals(1, reconciled.get(5, TimeUnit.SECONDS).getCreated());
+        assertEquals(Arrays.asList("Hello, %s!", "Hola, %s!"), patterns);
+        assertEquals(0, msf.getPendingCount());
+        executor.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWarmUpBeforeRegistration() throws Exception {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected void warmUp(String pid, HelloService service) throws Exception {
+                events.add(service.sayHello("warm-up"));
+            }
+        };
+        msf.setWarmUpBudget(Duration.ofSeconds(5));
+        when(bundleContext.registerService(eq(HelloService.class), isA(HelloService.class), isA(Dictionary.class))).thenAnswer(invocation -> {
+            events.add("registered");
+            return serviceRegistration;
+        });
+        msf.updated("pid", new Hashtable<>());
+        assertEquals(Arrays.asList("Hello, warm-up!", "registered"), events);
+        assertNotNull(msf.getLifecycleStatus().get("pid").getWarmUpTime());
+    }
+
+    @Test
+    public void testWarmUpBudgetExceeded() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected void warmUp(String pid, HelloService service) throws Exception {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        msf.setWarmUpExecutor(executor);
+        msf.setWarmUpBudget(Duration.ofMillis(50));
+        final long start = System.nanoTime();
+        msf.updated("pid", new Hashtable<>());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        verify(bundleContext).registerService(eq(HelloService.class), isA(HelloService.class), same(serviceProperties));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testWarmUpRunsInlineByDefault() throws Exception {
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected void warmUp(String pid, HelloService service) throws Exception {
+                threads.add(Thread.currentThread());
+                Thread.sleep(20);
+            }
+        };
+        msf.setWarmUpBudget(Duration.ofMillis(1));
+        msf.updated("pid", new Hashtable<>());
+        assertEquals(Collections.singletonList(Thread.currentThread()), threads);
+        verify(bundleContext).registerService(eq(HelloService.class), isA(HelloService.class), same(serviceProperties));
+        assertTrue(msf.getLifecycleStatus().get("pid").getWarmUpTime().compareTo(Duration.ofMillis(20)) >= 0);
+    }
+
+    @Test
+    public void testFailedWarmUpStillRegisters() throws Exception {
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected void warmUp(String pid, HelloService service) throws Exception {
+                throw new IllegalStateException("Cache unavailable.");
+            }
+        };
+        msf.setWarmUpBudget(Duration.ofSeconds(5));
+        msf.updated("pid", new Hashtable<>());
+        verify(bundleContext).registerService(eq(HelloService.class), isA(HelloService.class), same(serviceProperties));
+    }
+
+    @Test
+    public void testNoWarmUpByDefault() throws Exception {
+        msf.updated("pid", new Hashtable<>());
+        assertNull(msf.getLifecycleStatus().get("pid").getWarmUpTime());
+    }
+
+    @Test
+    public void testDeleteReleasesEverything() throws Exception {
+        msf.updated("pid", new Hashtable<>());
+        msf.deleted("pid");
+        msf.deleted("pid");
+        verify(serviceRegistration).unregister();
+        verify(bundleContext, never()).getService(serviceReference);
+        assertEquals(1, destroyCount.get());
+        assertNull(msf.getLifecycleState("pid"));
+        assertTrue(msf.getLifecycleStatus().isEmpty());
+    }
+
+    @Test
+    public void testDeleteAfterServiceWasUnregistered() throws Exception {
+        doThrow(new IllegalStateException("Service already unregistered.")).when(serviceRegistration).unregister();
+        msf.updated("pid", new Hashtable<>());
+        msf.deleted("pid");
+        assertEquals(1, destroyCount.get());
+        assertNull(msf.getLifecycleState("pid"));
+    }
+
+    @Test
+    public void testLifecycleStatus() throws Exception {
+        msf.updated("pid-1", new Hashtable<>());
+        msf.updated("pid-2", new Hashtable<>());
+        assertEquals(AbstractManagedServiceFactory.LifecycleState.ACTIVE, msf.getLifecycleState("pid-1"));
+        assertEquals(Arrays.asList("pid-1", "pid-2"), new ArrayList<>(msf.getLifecycleStatus().keySet()));
+        final AbstractManagedServiceFactory.LifecycleStatus status = msf.getLifecycleStatus().get("pid-2");
+        assertEquals("pid-2", status.getPid());
+        assertEquals(AbstractManagedServiceFactory.LifecycleState.ACTIVE, status.getState());
+        assertFalse(status.getAge().isNegative());
+        assertFalse(status.getStateChanged().isBefore(status.getCreated()));
+    }
+
+    @Test
+    public void testReplacementKeepsCreationTime() throws Exception {
+        msf.updated("pid", new Hashtable<>());
+        final Instant created = msf.getLifecycleStatus().get("pid").getCreated();
+        Thread.sleep(20);
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+        verify(serviceRegistration).unregister();
+        final AbstractManagedServiceFactory.LifecycleStatus status = msf.getLifecycleStatus().get("pid");
+        assertEquals(created, status.getCreated());
+        assertTrue(status.getStateChanged().isAfter(created));
+        assertTrue(status.getAge().compareTo(Duration.ofMillis(20)) >= 0);
+    }
+
+    @Test
+    public void testLifecycleStateWhileSwapping() throws Exception {
+        final List<AbstractManagedServiceFactory.LifecycleState> states = new CopyOnWriteArrayList<>();
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected void destroy(String pid, HelloService service) {
+                states.add(getLifecycleState(pid));
+                super.destroy(pid, service);
+            }
+        };
+        msf.setUpdateStrategy(AbstractManagedServiceFactory.UpdateStrategy.SWAP);
+        msf.updated("pid", new Hashtable<>());
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+        msf.deleted("pid");
+        assertEquals(Arrays.asList(AbstractManagedServiceFactory.LifecycleState.SWAPPING, AbstractManagedServiceFactory.LifecycleState.DESTROYING), states);
+    }
+
+    @Test
+    public void testFailedCreationIsNotRecorded() throws Exception {
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                return new HelloServiceImpl(getProperty("greetingPattern", configProperties));
+            }
+        };
+        try {
+            msf.updated("pid", new Hashtable<>());
+            fail("Expected the update to fail.");
+        } catch (ConfigurationException e) {
+            assertNull(msf.getLifecycleState("pid"));
+        }
+    }
+
+    @Test
+    public void testSharedResources() throws Exception {
+        final List<String> closed = new CopyOnWriteArrayList<>();
+        final SharedResources<String, String> pools = new SharedResources<>(url -> "pool:" + url, closed::add);
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                share(pools, getProperty("url", configProperties));
+                return super.newService(pid, configProperties);
+            }
+        };
+        msf.setUpdateStrategy(AbstractManagedServiceFactory.UpdateStrategy.SWAP);
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("url", "jdbc:h2:mem");
+        msf.updated("pid-1", configProperties);
+        msf.updated("pid-2", configProperties);
+        assertEquals(1, pools.size());
+        assertEquals(2, pools.getReferenceCount("jdbc:h2:mem"));
+
+        final Dictionary<String, Object> changed = new Hashtable<>();
+        changed.put("url", "jdbc:h2:mem");
+        changed.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid-1", changed);
+        assertEquals(2, pools.getReferenceCount("jdbc:h2:mem"));
+
+        msf.deleted("pid-1");
+        assertTrue(closed.isEmpty());
+        msf.deleted("pid-2");
+        assertEquals(Arrays.asList("pool:jdbc:h2:mem"), closed);
+        assertEquals(0, pools.size());
+    }
+
+    @Test
+    public void testSharedResourceReleasedWhenCreationFails() throws Exception {
+        final SharedResources<String, String> pools = new SharedResources<>(url -> "pool:" + url, pool -> {
+        });
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                share(pools, "url");
+                throw new ConfigurationException("greetingPattern", "Invalid.");
+            }
+        };
+        try {
+            msf.updated("pid", new Hashtable<>());
+            fail("Expected the update to fail.");
+        } catch (ConfigurationException e) {
+            assertEquals(0, pools.size());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShareOutsideOfCreation() throws Exception {
+        msf.share(new SharedResources<>(url -> "pool:" + url, pool -> {
+        }), "url");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLazyCreation() throws Exception {
+        msf.setLazy(true);
+        msf.updated("pid", new Hashtable<>());
+        verify(bundleContext, never()).registerService(eq(HelloService.class), isA(HelloService.class), isA(Dictionary.class));
+        final ServiceFactory<HelloService> factory = captureLazyService();
+        assertEquals(0, msf.createCount.get());
+
+        final HelloService service = factory.getService(consumer, serviceRegistration);
+        assertEquals("Hello, Slappy!", service.sayHello("Slappy"));
+        assertSame(service, factory.getService(consumer, serviceRegistration));
+        assertEquals(1, msf.createCount.get());
+
+        msf.deleted("pid");
+        verify(serviceRegistration).unregister();
+        verify(bundleContext, never()).getService(serviceReference);
+        assertEquals(Arrays.asList(service), destroyed);
+    }
+
+    @Test
+    public void testLazyServiceNeverUsed() throws Exception {
+        msf.setLazy(true);
+        msf.updated("pid", new Hashtable<>());
+        msf.deleted("pid");
+        verify(serviceRegistration).unregister();
+        assertEquals(0, msf.createCount.get());
+        assertEquals(0, destroyCount.get());
+    }
+
+    @Test
+    public void testLazyReconfigureBeforeFirstUse() throws Exception {
+        msf.setLazy(true);
+        msf.updated("pid", new Hashtable<>());
+        final Dictionary<String, Object> configProperties = new Hashtable<>();
+        configProperties.put("greetingPattern", "Hola, %s!");
+        msf.updated("pid", configProperties);
+
+        final ServiceFactory<HelloService> factory = captureLazyService();
+        verify(serviceRegistration).setProperties(same(serviceProperties));
+        verify(serviceRegistration, never()).unregister();
+        assertEquals("Hola, Slappy!", factory.getService(consumer, serviceRegistration).sayHello("Slappy"));
+    }
+
+    @Test
+    public void testIdleEviction() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        msf.setLazy(true);
+        msf.setScheduler(scheduler);
+        msf.setIdleTimeout(Duration.ofMillis(50));
+        msf.updated("pid", new Hashtable<>());
+        final ServiceFactory<HelloService> factory = captureLazyService();
+
+        final HelloService first = factory.getService(consumer, serviceRegistration);
+        factory.ungetService(consumer, serviceRegistration, first);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (destroyCount.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(first), destroyed);
+
+        final HelloService second = factory.getService(consumer, serviceRegistration);
+        assertNotSame(first, second);
+        assertEquals(2, msf.createCount.get());
+        scheduler.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIdleTimeoutRequiresScheduler() {
+        msf.setLazy(true);
+        msf.setIdleTimeout(Duration.ofMillis(50));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSchedulerCannotBeRemovedWhileEvicting() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            msf.setScheduler(scheduler);
+            msf.setIdleTimeout(Duration.ofMillis(50));
+            msf.setScheduler(null);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testServiceInUseIsNotEvicted() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        msf.setLazy(true);
+        msf.setScheduler(scheduler);
+        msf.setIdleTimeout(Duration.ofMillis(20));
+        msf.updated("pid", new Hashtable<>());
+        final ServiceFactory<HelloService> factory = captureLazyService();
+
+        final HelloService service = factory.getService(consumer, serviceRegistration);
+        final Bundle other = mock(Bundle.class);
+        factory.getService(other, serviceRegistration);
+        factory.ungetService(other, serviceRegistration, service);
+        Thread.sleep(200);
+        assertEquals(0, destroyCount.get());
+        assertSame(service, factory.getService(consumer, serviceRegistration));
+        scheduler.shutdown();
+    }
+
     @Test
     public void testGetRequiredProperty() throws Exception {
         Dictionary<String, Object> properties = new Hashtable<>();
@@ -130,6 +882,39 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
         assertNull(AbstractManagedServiceFactory.getProperty("foo", false, properties));
     }
 
+    @Test
+    public void testMetrics() throws Exception {
+        msf = new HelloManagedServiceFactory(bundleContext) {
+            @Override
+            protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+                return new HelloServiceImpl(getProperty("greetingPattern", configProperties));
+            }
+        };
+        final LongAdderMetrics metrics = new LongAdderMetrics();
+        msf.setMetrics(metrics);
+        final Dictionary<String, Object> hello = new Hashtable<>();
+        hello.put("greetingPattern", "Hello, %s!");
+        final Dictionary<String, Object> hi = new Hashtable<>();
+        hi.put("greetingPattern", "Hi, %s!");
+        msf.updated("pid", hello);
+        msf.updated("pid", hello);
+        msf.updated("pid", hi);
+        try {
+            msf.updated("pid-2", new Hashtable<>());
+            fail("Expected the update to fail.");
+        } catch (ConfigurationException e) {
+            // Expected.
+        }
+        msf.deleted("pid");
+
+        assertEquals(1, metrics.counter("created").getCount());
+        assertEquals(1, metrics.counter("unchanged").getCount());
+        assertEquals(1, metrics.counter("updated").getCount());
+        assertEquals(1, metrics.counter("failed").getCount());
+        assertEquals(1, metrics.counter("deleted").getCount());
+        assertEquals(3, metrics.timer("newService").getCount());
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Inner Classes
 //----------------------------------------------------------------------------------------------------------------------
@@ -139,7 +924,7 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
     }
 
     private final class HelloServiceImpl implements HelloService {
-        private final String greetingPattern;
+        private volatile String greetingPattern;
 
         public HelloServiceImpl(String greetingPattern) {
             this.greetingPattern = greetingPattern;
@@ -147,11 +932,54 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
 
         @Override
         public String sayHello(String name) {
+            try {
+                callLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
             return String.format(greetingPattern, name);
         }
     }
 
+    private final class DrainableHelloService implements HelloService, Drainable {
+        private final HelloServiceImpl delegate;
+        private final CallsInFlight calls = new CallsInFlight();
+
+        public DrainableHelloService(String greetingPattern) {
+            this.delegate = new HelloServiceImpl(greetingPattern);
+        }
+
+        @Override
+        public boolean drain(Duration timeout) {
+            return calls.drain(timeout);
+        }
+
+        @Override
+        public int getInFlight() {
+            return calls.getInFlight();
+        }
+
+        @Override
+        public String sayHello(String name) {
+            calls.enter();
+            try {
+                return delegate.sayHello(name);
+            } finally {
+                calls.exit();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ServiceFactory<HelloService> captureLazyService() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(bundleContext).registerService(eq(HelloService.class.getName()), captor.capture(), same(serviceProperties));
+        return (ServiceFactory<HelloService>) captor.getValue();
+    }
+
     public class HelloManagedServiceFactory extends AbstractManagedServiceFactory<HelloService> {
+        private final AtomicInteger createCount = new AtomicInteger();
+
         public HelloManagedServiceFactory(BundleContext bundleContext) {
             super(bundleContext);
         }
@@ -162,12 +990,14 @@ public class AbstractManagedServiceFactoryTest extends MockObjectTestCase {
 
         @Override
         protected HelloService newService(String pid, Dictionary<String, ?> configProperties) throws ConfigurationException {
+            createCount.incrementAndGet();
             return new HelloServiceImpl(getProperty("greetingPattern", configProperties, "Hello, %s!"));
         }
 
         @Override
         protected void destroy(String pid, HelloService service) {
             super.destroy(pid, service);
+            destroyed.add(service);
             destroyCount.incrementAndGet();
         }
 
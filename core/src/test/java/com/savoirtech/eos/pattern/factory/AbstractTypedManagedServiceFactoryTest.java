@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import com.savoirtech.eos.test.MockObjectTestCase;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.cm.ConfigurationException;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import static org.mockito.Mockito.*;
+
+public class AbstractTypedManagedServiceFactoryTest extends MockObjectTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Mock
+    private BundleContext bundleContext;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testTypeVariables() {
+        final GreeterFactory factory = new GreeterFactory(bundleContext);
+        assertEquals(Greeter.class, factory.getServiceType());
+        assertEquals(GreeterConfig.class, factory.getConfigType());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNewServiceReceivesTypedConfig() throws Exception {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put("greeting.pattern", "Hola, %s!");
+        props.put("repeat", "2");
+        new GreeterFactory(bundleContext).updated("pid", props);
+
+        ArgumentCaptor<Greeter> captor = ArgumentCaptor.forClass(Greeter.class);
+        verify(bundleContext).registerService(eq(Greeter.class), captor.capture(), isA(Dictionary.class));
+        assertEquals("Hola, Slappy! Hola, Slappy!", captor.getValue().greet("Slappy"));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidConfigIsRejected() throws Exception {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put("repeat", "twice");
+        new GreeterFactory(bundleContext).updated("pid", props);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public interface Greeter {
+        String greet(String name);
+    }
+
+    public @interface GreeterConfig {
+        String greeting_pattern() default "Hello, %s!";
+
+        int repeat() default 1;
+    }
+
+    public static class GreeterFactory extends AbstractTypedManagedServiceFactory<Greeter, GreeterConfig> {
+        public GreeterFactory(BundleContext bundleContext) {
+            super(bundleContext);
+        }
+
+        @Override
+        protected Greeter newService(String pid, GreeterConfig config) throws ConfigurationException {
+            final String pattern = config.greeting_pattern();
+            final int repeat = config.repeat();
+            return name -> {
+                final StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < repeat; i++) {
+                    sb.append(i > 0 ? " " : "").append(String.format(pattern, name));
+                }
+                return sb.toString();
+            };
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import com.savoirtech.eos.test.MockObjectTestCase;
+import org.junit.Test;
+import org.osgi.service.cm.ConfigurationException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ConfigurationBindingTest extends MockObjectTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testBindingIsCached() {
+        assertSame(ConfigurationBinding.of(ServerConfig.class), ConfigurationBinding.of(ServerConfig.class));
+    }
+
+    @Test
+    public void testPropertyNames() {
+        assertEquals("cache.ttl", ConfigurationBinding.propertyName("cache_ttl"));
+        assertEquals("my_name", ConfigurationBinding.propertyName("my__name"));
+        assertEquals("price$", ConfigurationBinding.propertyName("price$$"));
+        assertEquals("value", ConfigurationBinding.propertyName("val$ue"));
+    }
+
+    @Test
+    public void testBindAnnotationType() throws Exception {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put("port", "8080");
+        props.put("cache.ttl", "30s");
+        props.put("tags", "a, b");
+        props.put("endpoint.url", "http://localhost");
+        final ServerConfig config = ConfigurationBinding.of(ServerConfig.class).bind(props);
+        assertEquals("localhost", config.host());
+        assertEquals(8080, config.port());
+        assertFalse(config.secure());
+        assertEquals(TimeUnit.SECONDS, config.unit());
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(config.tags()));
+        assertEquals(Duration.ofSeconds(30), ConfigurationBinding.of(ClientConfig.class).bind(props).cache_ttl());
+        assertEquals(ServerConfig.class, ((java.lang.annotation.Annotation) config).annotationType());
+    }
+
+    @Test
+    public void testBindPlainInterface() throws Exception {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put("cache.ttl", 1500L);
+        props.put("endpoint.url", "http://localhost");
+        final ClientConfig config = ConfigurationBinding.of(ClientConfig.class).bind(props);
+        assertEquals(Duration.ofMillis(1500), config.cache_ttl());
+        assertEquals("http://localhost", config.url());
+        assertEquals(Arrays.asList("x", "y"), config.hosts());
+        assertEquals(3L, config.retries());
+        assertTrue(config.toString().contains("endpoint.url=http://localhost"));
+    }
+
+    @Test
+    public void testAllViolationsAreReported() {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put("port", "eighty");
+        props.put("unit", "fortnights");
+        try {
+            ConfigurationBinding.of(ServerConfig.class).bind(props);
+            fail("Expected binding to fail.");
+        } catch (ConfigurationException e) {
+            final List<String> names = Arrays.asList(e.getProperty().split(", "));
+            assertEquals(2, names.size());
+            assertTrue(names.containsAll(Arrays.asList("port", "unit")));
+            assertTrue(e.getReason().contains("eighty"));
+            assertTrue(e.getReason().contains("fortnights"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedReturnType() {
+        ConfigurationBinding.of(UnsupportedConfig.class);
+    }
+
+    @Test
+    public void testArraysAreCopied() throws Exception {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put("port", 80);
+        props.put("tags", new String[]{"a"});
+        final ServerConfig config = ConfigurationBinding.of(ServerConfig.class).bind(props);
+        config.tags()[0] = "b";
+        assertEquals("a", config.tags()[0]);
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public @interface ServerConfig {
+        String host() default "localhost";
+
+        int port();
+
+        boolean secure() default false;
+
+        TimeUnit unit() default TimeUnit.SECONDS;
+
+        String[] tags() default {};
+    }
+
+    public interface ClientConfig {
+        Duration cache_ttl();
+
+        @ConfigurationProperty(name = "endpoint.url")
+        String url();
+
+        @ConfigurationProperty(defaultValue = {"x", "y"})
+        List<String> hosts();
+
+        @ConfigurationProperty(defaultValue = "3")
+        long retries();
+    }
+
+    public interface UnsupportedConfig {
+        Object value();
+    }
+}
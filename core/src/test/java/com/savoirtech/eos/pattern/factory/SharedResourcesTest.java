@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.factory;
+
+import com.savoirtech.eos.test.MockObjectTestCase;
+import org.junit.Test;
+import org.osgi.service.cm.ConfigurationException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SharedResourcesTest extends MockObjectTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final List<String> opened = new CopyOnWriteArrayList<>();
+    private final List<String> closed = new CopyOnWriteArrayList<>();
+    private final SharedResources<String, String> resources = new SharedResources<>(key -> {
+        opened.add(key);
+        return "resource:" + key;
+    }, closed::add);
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testResourceIsShared() throws Exception {
+        final SharedResources.Lease<String> first = resources.acquire("url");
+        final SharedResources.Lease<String> second = resources.acquire("url");
+        assertSame(first.get(), second.get());
+        assertEquals(1, opened.size());
+        assertEquals(2, resources.getReferenceCount("url"));
+        assertEquals(1, resources.size());
+    }
+
+    @Test
+    public void testResourceIsClosedWithLastLease() throws Exception {
+        final SharedResources.Lease<String> first = resources.acquire("url");
+        final SharedResources.Lease<String> second = resources.acquire("url");
+        first.close();
+        first.close();
+        assertTrue(closed.isEmpty());
+        assertEquals(1, resources.getReferenceCount("url"));
+        second.close();
+        assertEquals(1, closed.size());
+        assertEquals("resource:url", closed.get(0));
+        assertEquals(0, resources.size());
+
+        resources.acquire("url");
+        assertEquals(2, opened.size());
+    }
+
+    @Test
+    public void testOpenFailure() {
+        final SharedResources<String, String> failing = new SharedResources<>(key -> {
+            throw new ConfigurationException("url", "Unreachable.");
+        }, resource -> {
+        });
+        try {
+            failing.acquire("url");
+            fail("Expected the resource to fail to open.");
+        } catch (ConfigurationException e) {
+            assertEquals("url", e.getProperty());
+            assertEquals(0, failing.size());
+        }
+    }
+
+    @Test
+    public void testAutoCloseable() throws Exception {
+        final List<String> closedKeys = new CopyOnWriteArrayList<>();
+        final SharedResources<String, AutoCloseable> closeables = SharedResources.of(key -> () -> closedKeys.add(key));
+        closeables.acquire("url").close();
+        assertEquals(1, closedKeys.size());
+    }
+
+    @Test
+    public void testOpenMayAcquireAnotherResource() throws Exception {
+        final AtomicReference<SharedResources<String, String>> self = new AtomicReference<>();
+        self.set(new SharedResources<>(key -> key.startsWith("pool:") ? "pool(" + self.get().acquire(key.substring(5)).get() + ")" : key, resource -> {
+        }));
+        assertEquals("pool(url)", self.get().acquire("pool:url").get());
+        assertEquals(2, self.get().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecursiveAcquireOfSameKey() throws Exception {
+        final AtomicReference<SharedResources<String, String>> self = new AtomicReference<>();
+        self.set(new SharedResources<>(key -> self.get().acquire(key).get(), resource -> {
+        }));
+        self.get().acquire("url");
+    }
+
+    @Test
+    public void testConcurrentAcquireWaitsForOpen() throws Exception {
+        final CountDownLatch opening = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        final SharedResources<String, String> slow = new SharedResources<>(key -> {
+            opened.add(key);
+            if ("url".equals(key)) {
+                opening.countDown();
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "resource:" + key;
+        }, closed::add);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final Future<SharedResources.Lease<String>> first = executor.submit(() -> slow.acquire("url"));
+        assertTrue(opening.await(5, TimeUnit.SECONDS));
+        final Future<SharedResources.Lease<String>> second = executor.submit(() -> slow.acquire("url"));
+        assertEquals("resource:other", slow.acquire("other").get());
+        assertFalse(second.isDone());
+        gate.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS).get(), second.get(5, TimeUnit.SECONDS).get());
+        assertEquals(2, slow.getReferenceCount("url"));
+        assertEquals(1, opened.stream().filter("url"::equals).count());
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.savoirtech.eos.test.OsgiTestCase;
+import com.savoirtech.eos.util.HelloService;
+import com.savoirtech.eos.util.HelloServiceImpl;
+import com.savoirtech.eos.util.Reverser;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+
+public class ComponentWhiteboardTest extends OsgiTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final List<String> lifecycle = new ArrayList<>();
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    private ComponentWhiteboard<Greeter> greeterWhiteboard() {
+        return new ComponentWhiteboard<Greeter>(bundleContext, deps -> {
+            Greeter greeter = new Greeter(deps.get("hello", HelloService.class), deps.get("reverser", Reverser.class));
+            lifecycle.add("activate");
+            return greeter;
+        }, greeter -> lifecycle.add("deactivate"))
+                .require("hello", HelloService.class)
+                .require("reverser", Reverser.class);
+    }
+
+    private ServiceRegistration<Reverser> registerReverser() {
+        return registerService(Reverser.class, StringUtils::reverse, serviceProps());
+    }
+
+    private static <C> ComponentWhiteboard<C> settled(ComponentWhiteboard<C> whiteboard) throws Exception {
+        whiteboard.awaitPending().get(5, TimeUnit.SECONDS);
+        return whiteboard;
+    }
+
+    @Test
+    public void testActivatesWhenSatisfied() throws Exception {
+        ComponentWhiteboard<Greeter> whiteboard = greeterWhiteboard();
+        whiteboard.start();
+        assertFalse(settled(whiteboard).isActive());
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        assertFalse(settled(whiteboard).isActive());
+        ServiceRegistration<Reverser> reverser = registerReverser();
+        assertTrue(settled(whiteboard).isActive());
+        assertEquals("!soE ,olleH", whiteboard.getComponent().greet("Eos"));
+
+        reverser.unregister();
+        assertFalse(settled(whiteboard).isActive());
+        assertNull(whiteboard.getComponent());
+        assertEquals(2, lifecycle.size());
+        assertEquals("deactivate", lifecycle.get(1));
+    }
+
+    @Test
+    public void testUnrelatedChurnDoesNotRestart() throws Exception {
+        ComponentWhiteboard<Greeter> whiteboard = greeterWhiteboard();
+        whiteboard.start();
+        ServiceRegistration<HelloServiceImpl> hello = registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        registerReverser();
+        Greeter greeter = settled(whiteboard).getComponent();
+
+        registerService(HelloService.class, name -> "Hi, " + name, serviceProps().with(Constants.SERVICE_RANKING, -1)).unregister();
+        hello.setProperties(serviceProps().with("language", "english").build());
+        assertSame(greeter, settled(whiteboard).getComponent());
+        assertEquals(1, lifecycle.size());
+    }
+
+    @Test
+    public void testRebindsToAlternative() throws Exception {
+        ComponentWhiteboard<Greeter> whiteboard = greeterWhiteboard();
+        whiteboard.start();
+        ServiceRegistration<HelloServiceImpl> hello = registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        registerService(HelloService.class, name -> "Hi, " + name, serviceProps());
+        registerReverser();
+        assertEquals("!soE ,olleH", settled(whiteboard).getComponent().greet("Eos"));
+
+        hello.unregister();
+        assertEquals("soE ,iH", settled(whiteboard).getComponent().greet("Eos"));
+        assertEquals(3, lifecycle.size());
+    }
+
+    @Test
+    public void testHigherRankingRebinds() throws Exception {
+        ComponentWhiteboard<Greeter> whiteboard = greeterWhiteboard();
+        whiteboard.start();
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        registerReverser();
+        registerService(HelloService.class, name -> "Hi, " + name, serviceProps().with(Constants.SERVICE_RANKING, 10));
+        assertEquals("soE ,iH", settled(whiteboard).getComponent().greet("Eos"));
+    }
+
+    @Test
+    public void testFilteredDependency() throws Exception {
+        ComponentWhiteboard<HelloService> whiteboard = new ComponentWhiteboard<HelloService>(bundleContext, deps -> deps.get("hello", HelloService.class), hello -> {
+        }).require("hello", HelloService.class, "(language=english)");
+        whiteboard.start();
+        registerService(HelloService.class, name -> "Bonjour, " + name, serviceProps().with("language", "french"));
+        assertFalse(settled(whiteboard).isActive());
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        assertEquals("Hello, Eos!", settled(whiteboard).getComponent().sayHello("Eos"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFilter() {
+        new ComponentWhiteboard<>(bundleContext, deps -> "", component -> {
+        }).require("hello", HelloService.class, "(language=");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateName() {
+        greeterWhiteboard().require("hello", HelloService.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequireAfterStart() {
+        ComponentWhiteboard<Greeter> whiteboard = greeterWhiteboard();
+        whiteboard.start();
+        whiteboard.require("other", HelloService.class);
+    }
+
+    @Test
+    public void testStopDeactivates() throws Exception {
+        ComponentWhiteboard<Greeter> whiteboard = greeterWhiteboard();
+        whiteboard.start();
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        registerReverser();
+        assertTrue(settled(whiteboard).isActive());
+        whiteboard.stop();
+        assertFalse(whiteboard.isActive());
+        assertEquals("deactivate", lifecycle.get(lifecycle.size() - 1));
+    }
+
+    @Test
+    public void testActivationFailure() throws Exception {
+        ComponentWhiteboard<Greeter> whiteboard = new ComponentWhiteboard<Greeter>(bundleContext, deps -> {
+            throw new IllegalStateException("Boom!");
+        }, greeter -> lifecycle.add("deactivate")).require("hello", HelloService.class);
+        whiteboard.start();
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        assertFalse(settled(whiteboard).isActive());
+        assertTrue(lifecycle.isEmpty());
+    }
+
+    @Test
+    public void testStopFromDeactivatorDoesNotWait() throws Exception {
+        List<ComponentWhiteboard<HelloService>> self = new ArrayList<>();
+        ComponentWhiteboard<HelloService> whiteboard = new ComponentWhiteboard<HelloService>(bundleContext, deps -> deps.get("hello", HelloService.class), hello -> {
+            lifecycle.add("deactivate");
+            self.get(0).stop();
+        }).require("hello", HelloService.class);
+        self.add(whiteboard);
+        whiteboard.start();
+        ServiceRegistration<HelloServiceImpl> hello = registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        assertTrue(settled(whiteboard).isActive());
+        hello.unregister();
+        assertFalse(settled(whiteboard).isActive());
+        assertEquals(1, lifecycle.size());
+    }
+
+    @Test
+    public void testActivatorsMayRegisterTrackedServices() throws Exception {
+        // Each component's activator registers a service the other one tracks; were the activators called from the
+        // dependencies' listeners (holding their event locks), the two registering threads would deadlock.
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ComponentWhiteboard<ServiceRegistration<Reverser>> reversing = new ComponentWhiteboard<ServiceRegistration<Reverser>>(bundleContext, deps -> {
+            await(barrier);
+            return bundleContext.registerService(Reverser.class, StringUtils::reverse, null);
+        }, ServiceRegistration::unregister).require("hello", HelloService.class);
+        ComponentWhiteboard<ServiceRegistration<HelloService>> greeting = new ComponentWhiteboard<ServiceRegistration<HelloService>>(bundleContext, deps -> {
+            await(barrier);
+            return bundleContext.registerService(HelloService.class, new HelloServiceImpl(), null);
+        }, ServiceRegistration::unregister).require("reverser", Reverser.class);
+        reversing.start();
+        greeting.start();
+
+        Thread registerHello = new Thread(() -> registerService(HelloService.class, new HelloServiceImpl(), serviceProps()));
+        Thread registerReverser = new Thread(this::registerReverser);
+        registerHello.start();
+        registerReverser.start();
+        registerHello.join(5000);
+        registerReverser.join(5000);
+        assertFalse(registerHello.isAlive());
+        assertFalse(registerReverser.isAlive());
+        assertTrue(settled(reversing).isActive());
+        assertTrue(settled(greeting).isActive());
+
+        reversing.stop();
+        greeting.stop();
+        assertFalse(reversing.isActive());
+        assertFalse(greeting.isActive());
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void testIndependentComponentsActivateInParallel() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<ComponentWhiteboard<HelloService>> whiteboards = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                ComponentWhiteboard<HelloService> whiteboard = new ComponentWhiteboard<HelloService>(bundleContext, deps -> {
+                    try {
+                        barrier.await(5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return deps.get("hello", HelloService.class);
+                }, hello -> {
+                }).require("hello", HelloService.class);
+                whiteboard.setExecutor(executor);
+                whiteboard.start();
+                whiteboards.add(whiteboard);
+            }
+            registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+            for (ComponentWhiteboard<HelloService> whiteboard : whiteboards) {
+                whiteboard.awaitPending().get(10, TimeUnit.SECONDS);
+                assertTrue(whiteboard.isActive());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public static class Greeter {
+        private final HelloService hello;
+        private final Reverser reverser;
+
+        public Greeter(HelloService hello, Reverser reverser) {
+            this.hello = hello;
+            this.reverser = reverser;
+        }
+
+        public String greet(String name) {
+            return reverser.reverse(hello.sayHello(name));
+        }
+    }
+}
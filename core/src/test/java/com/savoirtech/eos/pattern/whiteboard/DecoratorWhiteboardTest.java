@@ -16,6 +16,12 @@
 
 package com.savoirtech.eos.pattern.whiteboard;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.savoirtech.eos.test.OsgiTestCase;
 import com.savoirtech.eos.util.HelloService;
 import com.savoirtech.eos.util.HelloServiceImpl;
@@ -24,6 +30,7 @@ import com.savoirtech.eos.util.ServiceProperties;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
 import org.osgi.framework.ServiceReference;
 import org.osgi.framework.ServiceRegistration;
 
@@ -55,6 +62,70 @@ public class DecoratorWhiteboardTest extends OsgiTestCase {
         assertNull(refs);
     }
 
+    @Test
+    public void testDeferredRegistration() throws Exception {
+        QueuedExecutor executor = new QueuedExecutor();
+        HelloReverser reverser = new HelloReverser(bundleContext);
+        reverser.setExecutor(executor);
+        ServiceRegistration<HelloServiceImpl> registration = registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        assertNull(registry.getServiceReferences(Reverser.class.getName(), null));
+        CompletableFuture<Void> pending = reverser.awaitPending();
+        assertFalse(pending.isDone());
+
+        executor.runAll();
+        assertTrue(pending.isDone());
+        assertEquals(1, registry.getServiceReferences(Reverser.class.getName(), null).length);
+
+        registration.unregister();
+        assertEquals(1, registry.getServiceReferences(Reverser.class.getName(), null).length);
+        executor.runAll();
+        assertNull(registry.getServiceReferences(Reverser.class.getName(), null));
+        assertTrue(reverser.awaitPending().isDone());
+    }
+
+    @Test
+    public void testDeferredRegistrationCoalesced() throws Exception {
+        AtomicInteger registrations = new AtomicInteger();
+        bundleContext.addServiceListener(event -> {
+            if (event.getType() == ServiceEvent.REGISTERED) {
+                registrations.incrementAndGet();
+            }
+        }, "(objectClass=" + Reverser.class.getName() + ")");
+        QueuedExecutor executor = new QueuedExecutor();
+        HelloReverser reverser = new HelloReverser(bundleContext);
+        reverser.setExecutor(executor);
+        for (int i = 0; i < 5; i++) {
+            registerService(HelloService.class, new HelloServiceImpl(), serviceProps()).unregister();
+        }
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(0, registrations.get());
+        assertNull(registry.getServiceReferences(Reverser.class.getName(), null));
+    }
+
+    @Test
+    public void testDeferredReferenceNotYetRegistered() throws Exception {
+        QueuedExecutor executor = new QueuedExecutor();
+        HelloReverser reverser = new HelloReverser(bundleContext);
+        reverser.setExecutor(executor);
+        ServiceRegistration<?> deferred = reverser.addService(new HelloServiceImpl(), new ServiceProperties(registerService(HelloService.class, new HelloServiceImpl(), serviceProps()).getReference()));
+        try {
+            deferred.getReference();
+            fail("Expected IllegalStateException.");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        executor.runAll();
+        assertNotNull(deferred.getReference());
+        deferred.unregister();
+        try {
+            deferred.unregister();
+            fail("Expected IllegalStateException.");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Inner Classes
 //----------------------------------------------------------------------------------------------------------------------
@@ -80,4 +151,19 @@ public class DecoratorWhiteboardTest extends OsgiTestCase {
             return message -> StringUtils.reverse(service.sayHello(message));
         }
     }
-}
\ No newline at end of file
+
+    private static class QueuedExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
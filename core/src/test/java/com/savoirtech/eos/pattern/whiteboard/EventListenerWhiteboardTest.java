@@ -18,6 +18,7 @@ package com.savoirtech.eos.pattern.whiteboard;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.savoirtech.eos.metrics.LongAdderMetrics;
 import com.savoirtech.eos.test.OsgiTestCase;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -87,6 +88,33 @@ public class EventListenerWhiteboardTest extends OsgiTestCase {
         verifyNoMoreInteractions(listener);
     }
 
+    @Test
+    public void testWrapperAfterUnregistered() throws Exception {
+        AtomicBoolean wrapperCalled = new AtomicBoolean(false);
+        EventListenerWhiteboard<MyListener> whiteboard = new EventListenerWhiteboard<>(bundleContext, MyListener.class, (svc, props) -> msg -> wrapperCalled.set(true));
+        ServiceRegistration<MyListener> registration = registerService(MyListener.class, listener, serviceProps());
+        registration.unregister();
+        whiteboard.fire().doSomething("foo");
+        assertFalse(wrapperCalled.get());
+    }
+
+    @Test
+    public void testFireMetrics() throws Exception {
+        EventListenerWhiteboard<MyListener> whiteboard = new EventListenerWhiteboard<>(bundleContext, MyListener.class);
+        MyListener untimed = whiteboard.fire();
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        whiteboard.setMetrics(metrics);
+        assertSame(untimed, whiteboard.fire());
+        registerService(MyListener.class, listener, serviceProps());
+        whiteboard.fire().doSomething("foo");
+        whiteboard.fire().doSomething("bar");
+
+        verify(listener).doSomething("foo");
+        verify(listener).doSomething("bar");
+        assertEquals(2, metrics.timer("fire").getCount());
+        assertEquals(1, metrics.counter("added").getCount());
+    }
+
 //----------------------------------------------------------------------------------------------------------------------
 // Inner Classes
 //----------------------------------------------------------------------------------------------------------------------
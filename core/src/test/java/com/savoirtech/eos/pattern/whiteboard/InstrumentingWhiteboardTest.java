@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.savoirtech.eos.metrics.LongAdderMetrics;
+import com.savoirtech.eos.test.OsgiTestCase;
+import com.savoirtech.eos.util.HelloService;
+import com.savoirtech.eos.util.HelloServiceImpl;
+import com.savoirtech.eos.util.ServiceProperties;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+public class InstrumentingWhiteboardTest extends OsgiTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    private HelloService instrumented() throws Exception {
+        ServiceReference<?>[] refs = registry.getServiceReferences(HelloService.class.getName(), "(eos.instrumented=true)");
+        assertNotNull(refs);
+        assertEquals(1, refs.length);
+        return (HelloService) bundleContext.getService(refs[0]);
+    }
+
+    @Test
+    public void testDecoratorRegistration() throws Exception {
+        new InstrumentingWhiteboard<>(bundleContext, HelloService.class);
+        ServiceRegistration<HelloServiceImpl> registration = registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        ServiceReference<?>[] refs = registry.getServiceReferences(HelloService.class.getName(), "(eos.instrumented=true)");
+        assertEquals(1, refs.length);
+        assertEquals("english", refs[0].getProperty("language"));
+        assertEquals(registration.getReference().getProperty("service.id"), refs[0].getProperty(InstrumentingWhiteboard.INSTRUMENTED_SERVICE_ID));
+        assertEquals(2, registry.getServiceReferences(HelloService.class.getName(), null).length);
+    }
+
+    @Test
+    public void testCallsRecorded() throws Exception {
+        InstrumentingWhiteboard<HelloService> whiteboard = new InstrumentingWhiteboard<>(bundleContext, HelloService.class);
+        ServiceRegistration<HelloServiceImpl> registration = registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        HelloService hello = instrumented();
+        assertEquals("Hello, Eos!", hello.sayHello("Eos"));
+        assertEquals("Hello, World!", hello.sayHello("World"));
+
+        Map<Long, InstrumentingWhiteboard.ServiceStatistics> statistics = whiteboard.getStatistics();
+        assertEquals(1, statistics.size());
+        InstrumentingWhiteboard.ServiceStatistics serviceStatistics = statistics.get(registration.getReference().getProperty("service.id"));
+        assertNotNull(serviceStatistics);
+        InstrumentingWhiteboard.MethodStatistics methodStatistics = serviceStatistics.getMethods().get("sayHello(String)");
+        assertEquals(2, methodStatistics.getCalls());
+        assertEquals(0, methodStatistics.getErrors());
+        assertTrue(methodStatistics.getMaxNanos() > 0);
+        assertTrue(methodStatistics.getTotalNanos() >= methodStatistics.getMaxNanos());
+        assertTrue(methodStatistics.getPercentileNanos(100.0) >= methodStatistics.getMaxNanos());
+        assertTrue(methodStatistics.getPercentileNanos(50.0) <= methodStatistics.getPercentileNanos(100.0));
+    }
+
+    @Test
+    public void testErrorsRecorded() throws Exception {
+        InstrumentingWhiteboard<HelloService> whiteboard = new InstrumentingWhiteboard<>(bundleContext, HelloService.class);
+        registerService(HelloService.class, name -> {
+            throw new IllegalArgumentException(name);
+        }, serviceProps());
+        try {
+            instrumented().sayHello("Eos");
+            fail("Expected IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Eos", e.getMessage());
+        }
+        InstrumentingWhiteboard.MethodStatistics methodStatistics = whiteboard.getStatistics().values().iterator().next().getMethods().get("sayHello(String)");
+        assertEquals(1, methodStatistics.getCalls());
+        assertEquals(1, methodStatistics.getErrors());
+    }
+
+    @Test
+    public void testTraced() throws Exception {
+        TracingWhiteboard whiteboard = new TracingWhiteboard(bundleContext);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        instrumented().sayHello("Eos");
+        instrumented().toString();
+        assertEquals(1, whiteboard.traces.size());
+        assertEquals("sayHello", whiteboard.traces.get(0));
+    }
+
+    @Test
+    public void testStatisticsRemovedOnUnregister() throws Exception {
+        InstrumentingWhiteboard<HelloService> whiteboard = new InstrumentingWhiteboard<>(bundleContext, HelloService.class);
+        ServiceRegistration<HelloServiceImpl> registration = registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        assertEquals(1, whiteboard.getStatistics().size());
+        registration.unregister();
+        assertTrue(whiteboard.getStatistics().isEmpty());
+        assertNull(registry.getServiceReferences(HelloService.class.getName(), null));
+    }
+
+    @Test
+    public void testAlreadyInstrumentedNotDecorated() throws Exception {
+        InstrumentingWhiteboard<HelloService> whiteboard = new InstrumentingWhiteboard<>(bundleContext, HelloService.class);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with(InstrumentingWhiteboard.INSTRUMENTED, true));
+        assertTrue(whiteboard.getStatistics().isEmpty());
+        assertEquals(1, registry.getServiceReferences(HelloService.class.getName(), null).length);
+    }
+
+    @Test
+    public void testOwnDecoratorsNotTracked() throws Exception {
+        InstrumentingWhiteboard<HelloService> whiteboard = new InstrumentingWhiteboard<>(bundleContext, HelloService.class);
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        whiteboard.setMetrics(metrics);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        assertEquals(2, registry.getServiceReferences(HelloService.class.getName(), null).length);
+        assertEquals(1, whiteboard.getServiceCount());
+        assertEquals(1, metrics.counter("added").getCount());
+        assertEquals(0, metrics.counter("rejected").getCount());
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static class TracingWhiteboard extends InstrumentingWhiteboard<HelloService> {
+        private final List<String> traces = new ArrayList<>();
+
+        public TracingWhiteboard(BundleContext bundleContext) {
+            super(bundleContext, HelloService.class);
+        }
+
+        @Override
+        protected void traced(ServiceProperties props, Method method, long nanos, Throwable error) {
+            traces.add(method.getName());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.savoirtech.eos.test.OsgiTestCase;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+
+public class InterceptorWhiteboardTest extends OsgiTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static StringInterceptor appending(String suffix) {
+        return (request, next) -> next.proceed(request + suffix);
+    }
+
+    @Test
+    public void testWithNoInterceptors() throws Exception {
+        InterceptorWhiteboard<StringInterceptor, String, String> whiteboard = new InterceptorWhiteboard<>(bundleContext, StringInterceptor.class, request -> request + "!");
+        assertEquals("foo!", whiteboard.invoke("foo"));
+    }
+
+    @Test
+    public void testOrderedByRanking() throws Exception {
+        InterceptorWhiteboard<StringInterceptor, String, String> whiteboard = new InterceptorWhiteboard<>(bundleContext, StringInterceptor.class, request -> request + "!");
+        registerService(StringInterceptor.class, appending("-low"), serviceProps().with(Constants.SERVICE_RANKING, -10));
+        registerService(StringInterceptor.class, appending("-high"), serviceProps().with(Constants.SERVICE_RANKING, 10));
+        registerService(StringInterceptor.class, appending("-first"), serviceProps());
+        registerService(StringInterceptor.class, appending("-second"), serviceProps());
+        assertEquals("foo-high-first-second-low!", whiteboard.invoke("foo"));
+    }
+
+    @Test
+    public void testShortCircuit() throws Exception {
+        InterceptorWhiteboard<StringInterceptor, String, String> whiteboard = new InterceptorWhiteboard<>(bundleContext, StringInterceptor.class, request -> request + "!");
+        registerService(StringInterceptor.class, (request, next) -> "denied", serviceProps().with(Constants.SERVICE_RANKING, 10));
+        registerService(StringInterceptor.class, (request, next) -> {
+            fail("Should not be called.");
+            return null;
+        }, serviceProps());
+        assertEquals("denied", whiteboard.invoke("foo"));
+    }
+
+    @Test
+    public void testChainRebuiltOnlyOnChange() throws Exception {
+        InterceptorWhiteboard<StringInterceptor, String, String> whiteboard = new InterceptorWhiteboard<>(bundleContext, StringInterceptor.class, request -> request + "!");
+        ServiceRegistration<StringInterceptor> registration = registerService(StringInterceptor.class, appending("-a"), serviceProps());
+        Interceptor.Chain<String, String> chain = whiteboard.getChain();
+        assertEquals("foo-a!", chain.proceed("foo"));
+        assertSame(chain, whiteboard.getChain());
+
+        registerService(StringInterceptor.class, appending("-b"), serviceProps());
+        assertNotSame(chain, whiteboard.getChain());
+        assertEquals("foo-a!", chain.proceed("foo"));
+        assertEquals("foo-a-b!", whiteboard.invoke("foo"));
+
+        registration.unregister();
+        assertEquals("foo-b!", whiteboard.invoke("foo"));
+    }
+
+    @Test
+    public void testReorderedOnRankingChange() throws Exception {
+        InterceptorWhiteboard<StringInterceptor, String, String> whiteboard = new InterceptorWhiteboard<>(bundleContext, StringInterceptor.class, request -> request + "!");
+        ServiceRegistration<StringInterceptor> registration = registerService(StringInterceptor.class, appending("-a"), serviceProps());
+        registerService(StringInterceptor.class, appending("-b"), serviceProps());
+        assertEquals("foo-a-b!", whiteboard.invoke("foo"));
+        registration.setProperties(serviceProps().with(Constants.SERVICE_RANKING, -1).build());
+        assertEquals("foo-b-a!", whiteboard.invoke("foo"));
+    }
+
+    @Test
+    public void testRerankingNeverDropsInterceptor() throws Exception {
+        List<String> unsecured = new CopyOnWriteArrayList<>();
+        InterceptorWhiteboard<StringInterceptor, String, String> whiteboard = new InterceptorWhiteboard<StringInterceptor, String, String>(bundleContext, StringInterceptor.class, request -> request + "!") {
+            @Override
+            protected void removeService(StringInterceptor service, Link<StringInterceptor> tracked) {
+                super.removeService(service, tracked);
+                // An invocation landing between the removal and the re-addition of a modified interceptor.
+                try {
+                    final String result = invoke("foo");
+                    if (!result.contains("-secure")) {
+                        unsecured.add(result);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        ServiceRegistration<StringInterceptor> registration = registerService(StringInterceptor.class, appending("-secure"), serviceProps());
+        registerService(StringInterceptor.class, appending("-log"), serviceProps());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger invocations = new AtomicInteger();
+        Thread invoker = new Thread(() -> {
+            while (!done.get()) {
+                try {
+                    final String result = whiteboard.invoke("foo");
+                    if (!result.contains("-secure")) {
+                        unsecured.add(result);
+                    }
+                    invocations.incrementAndGet();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        invoker.start();
+        for (int i = 0; i < 200; i++) {
+            registration.setProperties(serviceProps().with(Constants.SERVICE_RANKING, i % 2 == 0 ? 10 : -10).build());
+        }
+        done.set(true);
+        invoker.join(5000);
+
+        assertTrue(invocations.get() > 0);
+        assertEquals(Collections.emptyList(), unsecured);
+        assertEquals("foo-log-secure!", whiteboard.invoke("foo"));
+    }
+
+    @Test
+    public void testBundleEvictionCompilesOnce() throws Exception {
+        InterceptorWhiteboard<StringInterceptor, String, String> whiteboard = new InterceptorWhiteboard<>(bundleContext, StringInterceptor.class, request -> request + "!");
+        whiteboard.setEvictOnBundleStop(true);
+        Bundle bundle = null;
+        for (Bundle candidate : bundleContext.getBundles()) {
+            if ("org.objenesis".equals(candidate.getSymbolicName())) {
+                bundle = candidate;
+            }
+        }
+        assertNotNull(bundle);
+        for (String suffix : new String[]{"-a", "-b", "-c"}) {
+            bundle.getBundleContext().registerService(StringInterceptor.class, appending(suffix), serviceProps().build());
+        }
+        registerService(StringInterceptor.class, appending("-d"), serviceProps());
+        assertEquals("foo-a-b-c-d!", whiteboard.invoke("foo"));
+
+        List<String> seen = new ArrayList<>();
+        whiteboard.addWhiteboardListener(event -> {
+            try {
+                seen.add(whiteboard.invoke("foo"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        bundle.stop();
+        assertEquals(3, seen.size());
+        for (String result : seen) {
+            assertEquals("foo-d!", result);
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public interface StringInterceptor extends Interceptor<String, String> {
+    }
+}
@@ -16,13 +16,17 @@
 
 package com.savoirtech.eos.pattern.whiteboard;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import com.savoirtech.eos.metrics.LongAdderMetrics;
 import com.savoirtech.eos.test.OsgiTestCase;
 import com.savoirtech.eos.util.HelloService;
 import com.savoirtech.eos.util.HelloServiceImpl;
 import org.junit.Before;
 import org.junit.Test;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceRegistration;
 
 public class KeyedWhiteboardTest extends OsgiTestCase {
@@ -97,9 +101,97 @@ public class KeyedWhiteboardTest extends OsgiTestCase {
         assertEquals("Hello, Eos!", whiteboard.getService("english").sayHello("Eos"));
     }
 
+    @Test
+    public void testWhiteboardListener() {
+        List<WhiteboardEvent<HelloService>> events = new ArrayList<>();
+        whiteboard.addWhiteboardListener(events::add);
+        long initialVersion = whiteboard.getVersion();
+
+        HelloService svc = new HelloServiceImpl();
+        ServiceRegistration<HelloService> reg = registerService(HelloService.class, svc, serviceProps().with("language", "english"));
+        reg.setProperties(serviceProps().with("language", "spanish").build());
+        reg.unregister();
+
+        assertEquals(3, events.size());
+        assertEquals(WhiteboardEvent.Type.ADDED, events.get(0).getType());
+        assertEquals(WhiteboardEvent.Type.MODIFIED, events.get(1).getType());
+        assertEquals("spanish", events.get(1).getProps().getProperty("language"));
+        assertEquals(WhiteboardEvent.Type.REMOVED, events.get(2).getType());
+        assertEquals("spanish", events.get(2).getProps().getProperty("language"));
+        assertSame(svc, events.get(2).getService());
+        assertEquals(initialVersion + 3, whiteboard.getVersion());
+        assertEquals(whiteboard.getVersion(), events.get(2).getVersion());
+        assertTrue(whiteboard.hasChangedSince(initialVersion));
+        assertFalse(whiteboard.hasChangedSince(whiteboard.getVersion()));
+    }
+
+    @Test
+    public void testWhiteboardListenerWhenModifiedKeyInvalid() {
+        List<WhiteboardEvent<HelloService>> events = new ArrayList<>();
+        ServiceRegistration<HelloService> reg = registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        whiteboard.addWhiteboardListener(events::add);
+        reg.setProperties(serviceProps().build());
+
+        assertEquals(1, events.size());
+        assertEquals(WhiteboardEvent.Type.REMOVED, events.get(0).getType());
+        assertEquals("english", events.get(0).getProps().getProperty("language"));
+    }
+
+    @Test
+    public void testMetrics() {
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        whiteboard.setMetrics(metrics);
+        ServiceRegistration<HelloService> reg = registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        reg.setProperties(serviceProps().with("language", "spanish").build());
+        whiteboard.getService("spanish");
+        whiteboard.getService("french");
+        reg.unregister();
+
+        assertEquals(1, metrics.counter("added").getCount());
+        assertEquals(1, metrics.counter("rejected").getCount());
+        assertEquals(1, metrics.counter("modified").getCount());
+        assertEquals(1, metrics.counter("removed").getCount());
+        assertEquals(3, metrics.timer("addService").getCount());
+        assertEquals(1, metrics.counter("lookup.hit").getCount());
+        assertEquals(1, metrics.counter("lookup.miss").getCount());
+    }
+
     @Test
     public void testStop() {
         whiteboard.stop();
         assertEquals(0, whiteboard.getServiceCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEvictOnBundleStop() throws Exception {
+        Bundle bundle = findBundle("org.objenesis");
+        whiteboard.setEvictOnBundleStop(true);
+        List<WhiteboardEvent<HelloService>> events = new ArrayList<>();
+        whiteboard.addWhiteboardListener(events::add);
+        for (String language : new String[]{"English", "French", "German"}) {
+            bundle.getBundleContext().registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", language).build());
+        }
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "Spanish"));
+        assertEquals(4, whiteboard.getServiceCount());
+
+        bundle.stop();
+        assertEquals(1, whiteboard.getServiceCount());
+        assertNull(whiteboard.getService("English"));
+        assertNotNull(whiteboard.getService("Spanish"));
+        assertEquals(7, events.size());
+        for (WhiteboardEvent<HelloService> event : events.subList(4, 7)) {
+            assertEquals(WhiteboardEvent.Type.REMOVED, event.getType());
+            assertSame(bundle, event.getProps().getBundle());
+        }
+    }
+
+    private Bundle findBundle(String symbolicName) {
+        for (Bundle bundle : bundleContext.getBundles()) {
+            if (symbolicName.equals(bundle.getSymbolicName())) {
+                return bundle;
+            }
+        }
+        throw new IllegalStateException("Bundle " + symbolicName + " not found.");
+    }
+}
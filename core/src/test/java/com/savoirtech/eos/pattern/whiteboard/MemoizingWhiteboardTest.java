@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheStats;
+import com.savoirtech.eos.metrics.LongAdderMetrics;
+import com.savoirtech.eos.test.OsgiTestCase;
+import com.savoirtech.eos.util.HelloService;
+import com.savoirtech.eos.util.HelloServiceImpl;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+
+public class MemoizingWhiteboardTest extends OsgiTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    private <T> T memoized(Class<T> type) throws Exception {
+        ServiceReference<?>[] refs = registry.getServiceReferences(type.getName(), "(eos.memoized=true)");
+        assertNotNull(refs);
+        assertEquals(1, refs.length);
+        return type.cast(bundleContext.getService(refs[0]));
+    }
+
+    private static long serviceId(ServiceRegistration<?> registration) {
+        return (Long) registration.getReference().getProperty("service.id");
+    }
+
+    @Test
+    public void testAnnotatedMethodsCached() throws Exception {
+        MemoizingWhiteboard<Calculator> whiteboard = new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        CountingCalculator calculator = new CountingCalculator();
+        ServiceRegistration<CountingCalculator> registration = registerService(Calculator.class, calculator, serviceProps().with("name", "counting"));
+
+        Calculator memoized = memoized(Calculator.class);
+        assertEquals(4, memoized.square(2));
+        assertEquals(4, memoized.square(2));
+        assertEquals(9, memoized.square(3));
+        assertEquals(2, calculator.squares.get());
+
+        memoized.increment();
+        memoized.increment();
+        assertEquals(2, calculator.increments.get());
+
+        CacheStats stats = whiteboard.getCacheStats(serviceId(registration)).get("square(int)");
+        assertEquals(1, stats.hitCount());
+        assertEquals(2, stats.missCount());
+        assertFalse(whiteboard.getCacheStats(serviceId(registration)).containsKey("increment()"));
+        assertEquals("counting", registry.getServiceReferences(Calculator.class.getName(), "(eos.memoized=true)")[0].getProperty("name"));
+    }
+
+    @Test
+    public void testMethodsFromServiceProperties() throws Exception {
+        MemoizingWhiteboard<HelloService> whiteboard = new MemoizingWhiteboard<>(bundleContext, HelloService.class);
+        ServiceRegistration<HelloServiceImpl> registration = registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with(MemoizingWhiteboard.METHODS, "sayHello"));
+        HelloService memoized = memoized(HelloService.class);
+        assertEquals("Hello, Eos!", memoized.sayHello("Eos"));
+        assertEquals("Hello, Eos!", memoized.sayHello("Eos"));
+        assertEquals(1, whiteboard.getCacheStats(serviceId(registration)).get("sayHello(String)").hitCount());
+    }
+
+    @Test
+    public void testNotDecoratedWithoutCachedMethods() throws Exception {
+        MemoizingWhiteboard<HelloService> whiteboard = new MemoizingWhiteboard<>(bundleContext, HelloService.class);
+        ServiceRegistration<HelloServiceImpl> registration = registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        assertNull(registry.getServiceReferences(HelloService.class.getName(), "(eos.memoized=true)"));
+        assertTrue(whiteboard.getCacheStats(serviceId(registration)).isEmpty());
+    }
+
+    @Test
+    public void testServicesWithoutCachedMethodsNotTracked() throws Exception {
+        MemoizingWhiteboard<HelloService> whiteboard = new MemoizingWhiteboard<>(bundleContext, HelloService.class);
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        whiteboard.setMetrics(metrics);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with(MemoizingWhiteboard.METHODS, "sayHello"));
+        assertEquals(1, whiteboard.getServiceCount());
+        assertEquals(1, metrics.counter("added").getCount());
+        assertEquals(0, metrics.counter("rejected").getCount());
+    }
+
+    @Test
+    public void testOwnDecoratorsNotTracked() throws Exception {
+        MemoizingWhiteboard<Calculator> whiteboard = new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        whiteboard.setMetrics(metrics);
+        registerService(Calculator.class, new CountingCalculator(), serviceProps());
+        assertEquals(2, registry.getServiceReferences(Calculator.class.getName(), null).length);
+        assertEquals(1, whiteboard.getServiceCount());
+        assertEquals(0, metrics.counter("rejected").getCount());
+    }
+
+    @Test
+    public void testMaximumSize() throws Exception {
+        new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        CountingCalculator calculator = new CountingCalculator();
+        registerService(Calculator.class, calculator, serviceProps().with(MemoizingWhiteboard.MAXIMUM_SIZE, 1));
+        Calculator memoized = memoized(Calculator.class);
+        memoized.square(2);
+        memoized.square(3);
+        memoized.square(2);
+        assertEquals(3, calculator.squares.get());
+    }
+
+    @Test
+    public void testExpireAfterWrite() throws Exception {
+        AtomicLong nanos = new AtomicLong();
+        new TickingWhiteboard(bundleContext, new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        CountingCalculator calculator = new CountingCalculator();
+        registerService(Calculator.class, calculator, serviceProps().with(MemoizingWhiteboard.EXPIRE_AFTER_WRITE, "10s"));
+        Calculator memoized = memoized(Calculator.class);
+        memoized.square(2);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        memoized.square(2);
+        assertEquals(1, calculator.squares.get());
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        memoized.square(2);
+        assertEquals(2, calculator.squares.get());
+    }
+
+    @Test
+    public void testExceptionsNotCached() throws Exception {
+        new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        CountingCalculator calculator = new CountingCalculator();
+        registerService(Calculator.class, calculator, serviceProps());
+        Calculator memoized = memoized(Calculator.class);
+        for (int i = 0; i < 2; i++) {
+            try {
+                memoized.square(-1);
+                fail("Expected IllegalArgumentException.");
+            } catch (IllegalArgumentException e) {
+                assertEquals("negative", e.getMessage());
+            }
+        }
+        assertEquals(2, calculator.squares.get());
+    }
+
+    @Test
+    public void testNullResultsCached() throws Exception {
+        new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        CountingCalculator calculator = new CountingCalculator();
+        registerService(Calculator.class, calculator, serviceProps());
+        Calculator memoized = memoized(Calculator.class);
+        assertNull(memoized.describe(new int[]{0}));
+        assertNull(memoized.describe(new int[]{0}));
+        assertEquals("[1, 2]", memoized.describe(new int[]{1, 2}));
+        assertEquals("[1, 2]", memoized.describe(new int[]{1, 2}));
+        assertEquals(2, calculator.descriptions.get());
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        CountingCalculator calculator = new CountingCalculator();
+        registerService(Calculator.class, calculator, serviceProps());
+        Calculator memoized = memoized(Calculator.class);
+        calculator.gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> memoized.square(7));
+            }
+            Thread.sleep(100);
+            calculator.gate.countDown();
+            for (Future<?> future : futures) {
+                assertEquals(49, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calculator.squares.get());
+    }
+
+    @Test
+    public void testInvalidatedOnModify() throws Exception {
+        MemoizingWhiteboard<Calculator> whiteboard = new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        CountingCalculator calculator = new CountingCalculator();
+        ServiceRegistration<CountingCalculator> registration = registerService(Calculator.class, calculator, serviceProps());
+        memoized(Calculator.class).square(2);
+        registration.setProperties(serviceProps().with("name", "modified").build());
+        memoized(Calculator.class).square(2);
+        assertEquals(2, calculator.squares.get());
+        Map<String, CacheStats> stats = whiteboard.getCacheStats(serviceId(registration));
+        assertEquals(1, stats.get("square(int)").missCount());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        MemoizingWhiteboard<Calculator> whiteboard = new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        CountingCalculator calculator = new CountingCalculator();
+        ServiceRegistration<CountingCalculator> registration = registerService(Calculator.class, calculator, serviceProps());
+        Calculator memoized = memoized(Calculator.class);
+        memoized.square(2);
+        whiteboard.invalidate(serviceId(registration));
+        memoized.square(2);
+        assertEquals(2, calculator.squares.get());
+    }
+
+    @Test
+    public void testRemovedOnUnregister() throws Exception {
+        MemoizingWhiteboard<Calculator> whiteboard = new MemoizingWhiteboard<>(bundleContext, Calculator.class);
+        ServiceRegistration<CountingCalculator> registration = registerService(Calculator.class, new CountingCalculator(), serviceProps());
+        long serviceId = serviceId(registration);
+        assertFalse(whiteboard.getCacheStats(serviceId).isEmpty());
+        registration.unregister();
+        assertTrue(whiteboard.getCacheStats(serviceId).isEmpty());
+        assertNull(registry.getServiceReferences(Calculator.class.getName(), null));
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public interface Calculator {
+        @Memoize
+        int square(int value);
+
+        @Memoize(maximumSize = 10)
+        String describe(int[] values);
+
+        void increment();
+    }
+
+    public static class CountingCalculator implements Calculator {
+        private final AtomicInteger squares = new AtomicInteger();
+        private final AtomicInteger descriptions = new AtomicInteger();
+        private final AtomicInteger increments = new AtomicInteger();
+        private volatile CountDownLatch gate;
+
+        @Override
+        public int square(int value) {
+            squares.incrementAndGet();
+            if (value < 0) {
+                throw new IllegalArgumentException("negative");
+            }
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return value * value;
+        }
+
+        @Override
+        public String describe(int[] values) {
+            descriptions.incrementAndGet();
+            return values.length < 2 ? null : Arrays.toString(values);
+        }
+
+        @Override
+        public void increment() {
+            increments.incrementAndGet();
+        }
+    }
+
+    private static class TickingWhiteboard extends MemoizingWhiteboard<Calculator> {
+        private final Ticker ticker;
+
+        public TickingWhiteboard(BundleContext bundleContext, Ticker ticker) {
+            super(bundleContext, Calculator.class);
+            this.ticker = ticker;
+        }
+
+        @Override
+        protected Ticker ticker() {
+            return ticker;
+        }
+    }
+}
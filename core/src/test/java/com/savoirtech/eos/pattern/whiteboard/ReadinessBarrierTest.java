@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.savoirtech.eos.test.OsgiTestCase;
+import com.savoirtech.eos.util.HelloService;
+import com.savoirtech.eos.util.HelloServiceImpl;
+import com.savoirtech.eos.util.Reverser;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadinessBarrierTest extends OsgiTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private KeyedWhiteboard<String, HelloService> greeters;
+    private SingleWhiteboard<Reverser> reversers;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Before
+    public void createWhiteboards() {
+        greeters = new KeyedWhiteboard<>(bundleContext, HelloService.class, (svc, props) -> props.getProperty("language"));
+        reversers = new SingleWhiteboard<>(bundleContext, Reverser.class);
+    }
+
+    @Test
+    public void testAwaitServiceCount() throws Exception {
+        CompletableFuture<Void> ready = greeters.awaitReady(2);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        assertFalse(ready.isDone());
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "spanish"));
+        ready.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAwaitWhenAlreadySatisfied() {
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        assertTrue(greeters.awaitReady(Arrays.asList("english")).isDone());
+    }
+
+    @Test
+    public void testBarrier() throws Exception {
+        ReadinessBarrier barrier = new ReadinessBarrier()
+                .require(greeters, Arrays.asList("english", "spanish"))
+                .require(reversers, 1);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "french"));
+        registerService(Reverser.class, (Reverser) message -> message, serviceProps());
+        assertFalse(barrier.await(50, TimeUnit.MILLISECONDS));
+
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "spanish"));
+        assertTrue(barrier.await(5, TimeUnit.SECONDS));
+        assertTrue(barrier.isReady());
+    }
+
+    @Test
+    public void testCancel() {
+        ReadinessBarrier barrier = new ReadinessBarrier().require(greeters, 1);
+        barrier.cancel();
+        assertTrue(barrier.toFuture().isCompletedExceptionally());
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        assertEquals(1, greeters.getServiceCount());
+    }
+
+    @Test
+    public void testCancelledBarrierIsNotReady() throws Exception {
+        ReadinessBarrier barrier = new ReadinessBarrier().require(greeters, 1).require(reversers, 1);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        barrier.cancel();
+        assertFalse(barrier.isReady());
+        assertFalse(barrier.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailedConditionIsReported() throws Exception {
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalArgumentException("Unavailable."));
+        ReadinessBarrier barrier = new ReadinessBarrier().require(failed);
+        assertFalse(barrier.isReady());
+        barrier.await(5, TimeUnit.SECONDS);
+    }
+}
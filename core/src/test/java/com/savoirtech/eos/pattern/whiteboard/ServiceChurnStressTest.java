@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.io.File;
+import java.time.Duration;
+
+import com.savoirtech.eos.test.OsgiTestCase;
+import com.savoirtech.eos.test.ServiceChurnHarness;
+import org.junit.Test;
+
+/**
+ * Runs a short {@link ServiceChurnHarness} pass as part of the build.  Longer soak runs can be configured using
+ * system properties, for example:
+ * <pre>
+ * mvn test -Dtest=ServiceChurnStressTest -Deos.stress.duration=PT5M -Deos.stress.writers=8 -Deos.stress.readers=16
+ * </pre>
+ * The report is written to {@code target/stress} (or {@code eos.stress.reportDir}).
+ */
+public class ServiceChurnStressTest extends OsgiTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testServiceChurn() throws Exception {
+        ServiceChurnHarness.Report report = new ServiceChurnHarness(bundleContext)
+                .duration(Duration.parse(System.getProperty("eos.stress.duration", "PT0.5S")))
+                .writerThreads(Integer.getInteger("eos.stress.writers", 2))
+                .readerThreads(Integer.getInteger("eos.stress.readers", 4))
+                .stableServiceCount(Integer.getInteger("eos.stress.services", 100))
+                .run();
+        report.writeTo(new File(System.getProperty("eos.stress.reportDir", "target/stress")));
+
+        assertTrue(report.getRegistrations() > 0);
+        assertTrue(report.getReads() > 0);
+        assertEquals(report.getReads(), report.getReadLatency().getTotalCount());
+        assertEquals(0, report.getLost());
+        assertEquals(0, report.getStale());
+        assertEquals(0, report.getMissedReads());
+        assertEquals(0, report.getLeftover());
+        assertTrue(report.isClean());
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.savoirtech.eos.pattern.whiteboard;
 
+import com.savoirtech.eos.metrics.LongAdderMetrics;
 import com.savoirtech.eos.test.OsgiTestCase;
 import com.savoirtech.eos.util.HelloService;
 import com.savoirtech.eos.util.HelloServiceImpl;
@@ -66,4 +67,17 @@ public class SingleWhiteboardTest extends OsgiTestCase {
         registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
         assertEquals(expected, whiteboard.getService());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLookupMetrics() {
+        LongAdderMetrics metrics = new LongAdderMetrics();
+        whiteboard.setMetrics(metrics);
+        whiteboard.getService();
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps());
+        whiteboard.getService();
+        whiteboard.getService(new HelloServiceImpl());
+
+        assertEquals(2, metrics.counter("lookup.hit").getCount());
+        assertEquals(1, metrics.counter("lookup.miss").getCount());
+    }
+}
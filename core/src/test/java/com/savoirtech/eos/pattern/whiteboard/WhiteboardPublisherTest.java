@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.pattern.whiteboard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.savoirtech.eos.test.OsgiTestCase;
+import com.savoirtech.eos.util.HelloService;
+import com.savoirtech.eos.util.HelloServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.ServiceRegistration;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class WhiteboardPublisherTest extends OsgiTestCase {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private KeyedWhiteboard<String, HelloService> whiteboard;
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Before
+    public void createWhiteboard() {
+        whiteboard = new KeyedWhiteboard<>(bundleContext, HelloService.class, (svc, props) -> props.getProperty("language"));
+    }
+
+    @Test
+    public void testReplayFollowedByLiveEvents() {
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 16);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        ServiceRegistration<HelloService> reg = registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "spanish"));
+        reg.unregister();
+
+        assertEquals(3, subscriber.events.size());
+        assertEquals(WhiteboardEvent.Type.ADDED, subscriber.events.get(0).getType());
+        assertEquals("english", subscriber.events.get(0).getProps().getProperty("language"));
+        assertEquals(WhiteboardEvent.Type.ADDED, subscriber.events.get(1).getType());
+        assertEquals(WhiteboardEvent.Type.REMOVED, subscriber.events.get(2).getType());
+        assertEquals(whiteboard.getVersion(), subscriber.events.get(2).getVersion());
+    }
+
+    @Test
+    public void testBackpressure() {
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 16);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "spanish"));
+        assertEquals(1, subscriber.events.size());
+
+        subscriber.subscription.request(5);
+        assertEquals(2, subscriber.events.size());
+    }
+
+    @Test
+    public void testBufferOverflow() {
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 1);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "spanish"));
+
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertEquals(0, publisher.getSubscriptionCount());
+    }
+
+    @Test
+    public void testReplayLargerThanBuffer() {
+        for (int i = 0; i < 5; i++) {
+            registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "language-" + i));
+        }
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 2);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        assertNull(subscriber.error);
+        assertEquals(1, publisher.getSubscriptionCount());
+
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "spanish"));
+        assertNull(subscriber.error);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(7, subscriber.events.size());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    public void testDeliveredReplayDoesNotEnlargeBuffer() {
+        for (int i = 0; i < 5; i++) {
+            registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "language-" + i));
+        }
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 2);
+        RecordingSubscriber subscriber = new RecordingSubscriber(5);
+        publisher.subscribe(subscriber);
+        assertEquals(5, subscriber.events.size());
+
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "spanish"));
+        assertNull(subscriber.error);
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "french"));
+        assertTrue(subscriber.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testInvalidRequest() {
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 16);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void testCancel() {
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 16);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.cancel();
+
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english"));
+        assertTrue(subscriber.events.isEmpty());
+        assertEquals(0, publisher.getSubscriptionCount());
+    }
+
+    @Test
+    public void testClose() {
+        WhiteboardPublisher<HelloService> publisher = new WhiteboardPublisher<>(whiteboard, Runnable::run, 16);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        publisher.close();
+        assertTrue(subscriber.completed);
+        assertEquals(0, publisher.getSubscriptionCount());
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static class RecordingSubscriber implements Subscriber<WhiteboardEvent<HelloService>> {
+        private final long initialRequest;
+        private final List<WhiteboardEvent<HelloService>> events = new ArrayList<>();
+        private Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(WhiteboardEvent<HelloService> event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.savoirtech.eos.pattern.whiteboard.KeyedWhiteboard;
+import com.savoirtech.eos.util.HelloService;
+import com.savoirtech.eos.util.HelloServiceImpl;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stress/soak harness which registers and unregisters services from "writer" threads while "reader" threads look
+ * services up on a {@link KeyedWhiteboard}.  Read latency and event-processing latency (the time taken by a
+ * registration or unregistration, including the synchronous dispatch of its service event to the whiteboard) are
+ * recorded into histograms, and tracking is verified as it goes:
+ * <ul>
+ * <li>a service which cannot be found right after it was registered is counted as <em>lost</em>,</li>
+ * <li>a service which can still be found right after it was unregistered is counted as <em>stale</em>,</li>
+ * <li>a lookup of one of the "stable" services (registered before the run and never unregistered) which fails is
+ * counted as a <em>missed read</em>,</li>
+ * <li>and once the run completes, the whiteboard must track exactly the stable services.</li>
+ * </ul>
+ * The resulting {@link Report} can be written to disk and compared between releases.
+ */
+public class ServiceChurnHarness {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceChurnHarness.class);
+    private static final String KEY_PROPERTY = "language";
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final BundleContext bundleContext;
+    private int writerThreads = 2;
+    private int readerThreads = 4;
+    private int stableServiceCount = 100;
+    private Duration duration = Duration.ofSeconds(1);
+
+//----------------------------------------------------------------------------------------------------------------------
+// Constructors
+//----------------------------------------------------------------------------------------------------------------------
+
+    public ServiceChurnHarness(BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public ServiceChurnHarness duration(Duration duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    public ServiceChurnHarness readerThreads(int readerThreads) {
+        this.readerThreads = readerThreads;
+        return this;
+    }
+
+    public ServiceChurnHarness stableServiceCount(int stableServiceCount) {
+        this.stableServiceCount = stableServiceCount;
+        return this;
+    }
+
+    public ServiceChurnHarness writerThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+        return this;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Runs the harness against a new whiteboard, which is stopped (along with all services registered by the harness)
+     * before returning.
+     *
+     * @return the report
+     * @throws InterruptedException if the current thread is interrupted while waiting for the run to complete
+     */
+    public Report run() throws InterruptedException {
+        final KeyedWhiteboard<String, HelloService> whiteboard = new KeyedWhiteboard<>(bundleContext, HelloService.class, (svc, props) -> props.getProperty(KEY_PROPERTY), stableServiceCount);
+        final List<ServiceRegistration<?>> stable = new ArrayList<>(stableServiceCount);
+        final String[] stableKeys = new String[stableServiceCount];
+        for (int i = 0; i < stableServiceCount; i++) {
+            stableKeys[i] = "stable-" + i;
+            stable.add(register(new HelloServiceImpl(), stableKeys[i]));
+        }
+        final Report report = new Report(this);
+        final CountDownLatch start = new CountDownLatch(1);
+        final long deadline = System.nanoTime() + duration.toNanos();
+        final List<Thread> threads = new ArrayList<>(writerThreads + readerThreads);
+        for (int i = 0; i < writerThreads; i++) {
+            final String prefix = "churn-" + i + "-";
+            threads.add(new Thread(() -> write(whiteboard, prefix, report, start, deadline), "eos-churn-writer-" + i));
+        }
+        for (int i = 0; i < readerThreads; i++) {
+            threads.add(new Thread(() -> read(whiteboard, stableKeys, report, start, deadline), "eos-churn-reader-" + i));
+        }
+        threads.forEach(Thread::start);
+        final long started = System.nanoTime();
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            report.elapsed = Duration.ofNanos(System.nanoTime() - started);
+            final Map<String, HelloService> remaining = whiteboard.asMap();
+            report.leftover = Math.abs(remaining.size() - stableServiceCount) + Math.abs(whiteboard.getServiceCount() - stableServiceCount);
+            for (String key : stableKeys) {
+                if (!remaining.containsKey(key)) {
+                    report.leftover++;
+                }
+            }
+        } finally {
+            whiteboard.stop();
+            stable.forEach(ServiceRegistration::unregister);
+        }
+        report.complete();
+        LOGGER.info("{}", report);
+        return report;
+    }
+
+    private void read(KeyedWhiteboard<String, HelloService> whiteboard, String[] keys, Report report, CountDownLatch start, long deadline) {
+        awaitStart(start);
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        long reads = 0;
+        while ((reads & 0xff) != 0 || System.nanoTime() < deadline) {
+            final String key = keys[random.nextInt(keys.length)];
+            final long before = System.nanoTime();
+            final HelloService service = whiteboard.getService(key);
+            report.readLatency.recordValue(Math.min(System.nanoTime() - before, HIGHEST_TRACKABLE_NANOS));
+            if (service == null) {
+                report.missedReads.increment();
+            }
+            reads++;
+        }
+        report.reads.add(reads);
+    }
+
+    private ServiceRegistration<?> register(HelloService service, String key) {
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put(KEY_PROPERTY, key);
+        return bundleContext.registerService(HelloService.class.getName(), service, props);
+    }
+
+    private void write(KeyedWhiteboard<String, HelloService> whiteboard, String prefix, Report report, CountDownLatch start, long deadline) {
+        awaitStart(start);
+        long sequence = 0;
+        while (System.nanoTime() < deadline) {
+            final String key = prefix + sequence++;
+            final HelloService service = new HelloServiceImpl();
+
+            long before = System.nanoTime();
+            final ServiceRegistration<?> registration = register(service, key);
+            report.eventLatency.recordValue(Math.min(System.nanoTime() - before, HIGHEST_TRACKABLE_NANOS));
+            if (whiteboard.getService(key) != service) {
+                report.lost.increment();
+            }
+
+            before = System.nanoTime();
+            registration.unregister();
+            report.eventLatency.recordValue(Math.min(System.nanoTime() - before, HIGHEST_TRACKABLE_NANOS));
+            if (whiteboard.getService(key) != null) {
+                report.stale.increment();
+            }
+        }
+        report.registrations.add(sequence);
+    }
+
+    private static void awaitStart(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * The outcome of a run.  {@link #writeTo(File)} produces a summary (a properties file with sorted keys, which diffs cleanly) along
+     * with the full latency distributions in HdrHistogram's percentile format, which can be plotted side by side.
+     */
+    public static final class Report {
+        private final int writerThreads;
+        private final int readerThreads;
+        private final int stableServiceCount;
+        private final Recorder readLatency = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private final Recorder eventLatency = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder registrations = new LongAdder();
+        private final LongAdder lost = new LongAdder();
+        private final LongAdder stale = new LongAdder();
+        private final LongAdder missedReads = new LongAdder();
+        private Histogram readHistogram;
+        private Histogram eventHistogram;
+        private Duration elapsed = Duration.ZERO;
+        private long leftover;
+
+        private Report(ServiceChurnHarness harness) {
+            this.writerThreads = harness.writerThreads;
+            this.readerThreads = harness.readerThreads;
+            this.stableServiceCount = harness.stableServiceCount;
+        }
+
+        private void complete() {
+            readHistogram = readLatency.getIntervalHistogram();
+            eventHistogram = eventLatency.getIntervalHistogram();
+        }
+
+        public Histogram getEventLatency() {
+            return eventHistogram;
+        }
+
+        public long getLeftover() {
+            return leftover;
+        }
+
+        public long getLost() {
+            return lost.sum();
+        }
+
+        public long getMissedReads() {
+            return missedReads.sum();
+        }
+
+        public Histogram getReadLatency() {
+            return readHistogram;
+        }
+
+        public long getReads() {
+            return reads.sum();
+        }
+
+        public long getRegistrations() {
+            return registrations.sum();
+        }
+
+        public long getStale() {
+            return stale.sum();
+        }
+
+        /**
+         * Returns true if no tracking errors (lost, stale, missed or leftover services) were detected.
+         *
+         * @return true if tracking was correct throughout the run
+         */
+        public boolean isClean() {
+            return getLost() == 0 && getStale() == 0 && getMissedReads() == 0 && leftover == 0;
+        }
+
+        /**
+         * Returns the summary as properties, with latencies in nanoseconds.
+         *
+         * @return the summary
+         */
+        public Properties toProperties() {
+            final Properties props = new Properties();
+            props.setProperty("writerThreads", String.valueOf(writerThreads));
+            props.setProperty("readerThreads", String.valueOf(readerThreads));
+            props.setProperty("stableServiceCount", String.valueOf(stableServiceCount));
+            props.setProperty("elapsedMillis", String.valueOf(elapsed.toMillis()));
+            props.setProperty("reads", String.valueOf(getReads()));
+            props.setProperty("registrations", String.valueOf(getRegistrations()));
+            props.setProperty("lost", String.valueOf(getLost()));
+            props.setProperty("stale", String.valueOf(getStale()));
+            props.setProperty("missedReads", String.valueOf(getMissedReads()));
+            props.setProperty("leftover", String.valueOf(leftover));
+            percentiles(props, "read", readHistogram);
+            percentiles(props, "event", eventHistogram);
+            return props;
+        }
+
+        private static void percentiles(Properties props, String prefix, Histogram histogram) {
+            props.setProperty(prefix + ".p50", String.valueOf(histogram.getValueAtPercentile(50.0)));
+            props.setProperty(prefix + ".p90", String.valueOf(histogram.getValueAtPercentile(90.0)));
+            props.setProperty(prefix + ".p99", String.valueOf(histogram.getValueAtPercentile(99.0)));
+            props.setProperty(prefix + ".p999", String.valueOf(histogram.getValueAtPercentile(99.9)));
+            props.setProperty(prefix + ".max", String.valueOf(histogram.getMaxValue()));
+        }
+
+        /**
+         * Writes the report into a directory as {@code summary.properties}, {@code read-latency.hgrm} and
+         * {@code event-latency.hgrm} (latencies in microseconds).
+         *
+         * @param directory the directory
+         * @throws IOException if the report cannot be written
+         */
+        public void writeTo(File directory) throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Unable to create directory " + directory + ".");
+            }
+            try (PrintStream out = new PrintStream(new FileOutputStream(new File(directory, "summary.properties")), false, "UTF-8")) {
+                new TreeMap<>(toProperties()).forEach((name, value) -> out.println(name + "=" + value));
+            }
+            writeHistogram(new File(directory, "read-latency.hgrm"), readHistogram);
+            writeHistogram(new File(directory, "event-latency.hgrm"), eventHistogram);
+        }
+
+        private static void writeHistogram(File file, Histogram histogram) throws IOException {
+            try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Churned %d service(s) with %d writer(s) and %d reader(s) in %d ms: %d read(s), read p99 %d ns, event p99 %d ns, %d lost, %d stale, %d missed read(s), %d leftover.",
+                    getRegistrations(), writerThreads, readerThreads, elapsed.toMillis(), getReads(),
+                    readHistogram.getValueAtPercentile(99.0), eventHistogram.getValueAtPercentile(99.0),
+                    getLost(), getStale(), getMissedReads(), leftover);
+        }
+    }
+}
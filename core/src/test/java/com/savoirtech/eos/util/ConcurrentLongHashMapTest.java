@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentLongHashMapTest extends Assert {
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Test
+    public void testPutGetRemove() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1L, "one"));
+        assertEquals("one", map.put(1L, "uno"));
+        assertEquals("uno", map.putIfAbsent(1L, "eins"));
+        assertEquals("uno", map.get(1L));
+        assertTrue(map.containsKey(1L));
+        assertEquals(1, map.size());
+        assertEquals("uno", map.remove(1L));
+        assertNull(map.remove(1L));
+        assertNull(map.get(1L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        new ConcurrentLongHashMap<String>().put(1L, null);
+    }
+
+    @Test
+    public void testResizeAndRemoveAgainstReference() {
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(1, 1);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.put(key, key), map.put(key, key));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+        assertEquals(expected.size(), map.values().size());
+    }
+
+    @Test
+    public void testClear() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>(16);
+        for (long key = 0; key < 100; key++) {
+            map.put(key, "value");
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(5L));
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(16, 4);
+        final int threads = 4;
+        final int perThread = 10_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final long base = t * (long) perThread;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (long key = base; key < base + perThread; key++) {
+                    map.put(key, key);
+                    assertEquals(Long.valueOf(key), map.get(key));
+                }
+                for (long key = base; key < base + perThread; key += 2) {
+                    map.remove(key);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(threads * perThread / 2, map.size());
+        for (long key = 1; key < threads * (long) perThread; key += 2) {
+            assertEquals(Long.valueOf(key), map.get(key));
+        }
+    }
+}
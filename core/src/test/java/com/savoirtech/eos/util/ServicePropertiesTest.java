@@ -16,6 +16,9 @@
 
 package com.savoirtech.eos.util;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 import com.savoirtech.eos.test.OsgiTestCase;
 import org.junit.Test;
 import org.osgi.framework.Constants;
@@ -38,4 +41,65 @@ public class ServicePropertiesTest extends OsgiTestCase {
         assertEquals(0, props.getServiceRanking());
     }
 
+    @Test
+    public void testSnapshotIsImmutable() {
+        final ServiceRegistration<HelloServiceImpl> registration = registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("language", "english").with(Constants.SERVICE_RANKING, 5));
+        final ServiceReference<HelloService> reference = bundleContext.getServiceReference(HelloService.class);
+
+        final ServiceProperties snapshot = ServiceProperties.snapshot(reference);
+        registration.setProperties(serviceProps().with("language", "spanish").build());
+
+        assertTrue(snapshot.isSnapshot());
+        assertEquals("english", snapshot.getProperty("language"));
+        assertEquals(5, snapshot.getServiceRanking());
+        assertEquals(bundleContext.getBundle(), snapshot.getBundle());
+        assertEquals(reference.getProperty(Constants.SERVICE_ID), snapshot.getServiceId());
+        assertEquals("spanish", new ServiceProperties(reference).getProperty("language"));
+    }
+
+    @Test
+    public void testTypedAccessors() {
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps()
+                .with("long", "42")
+                .with("int", 7L)
+                .with("bool", "TRUE")
+                .with("duration", "30s")
+                .with("unit", "seconds"));
+        final ServiceReference<HelloService> reference = bundleContext.getServiceReference(HelloService.class);
+
+        for (ServiceProperties props : new ServiceProperties[]{new ServiceProperties(reference), ServiceProperties.snapshot(reference)}) {
+            assertEquals(42L, props.getLong("long", -1L));
+            assertEquals(-1L, props.getLong("missing", -1L));
+            assertEquals(7, props.getInt("int", 0));
+            assertTrue(props.getBoolean("bool", false));
+            assertEquals(Duration.ofSeconds(30), props.getDuration("duration", null));
+            assertEquals(TimeUnit.SECONDS, props.getEnum("unit", TimeUnit.class, null));
+            assertEquals(TimeUnit.DAYS, props.getEnum("missing", TimeUnit.class, TimeUnit.DAYS));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypedAccessorWithInvalidValue() {
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("long", "forty-two"));
+        ServiceProperties.snapshot(bundleContext.getServiceReference(HelloService.class)).getLong("long", 0L);
+    }
+
+    @Test
+    public void testKeysAreCaseInsensitive() {
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("Language", "english"));
+        final ServiceReference<HelloService> reference = bundleContext.getServiceReference(HelloService.class);
+
+        for (ServiceProperties props : new ServiceProperties[]{new ServiceProperties(reference), ServiceProperties.snapshot(reference)}) {
+            assertEquals("english", props.getProperty("language"));
+            assertEquals("english", props.getProperty("LANGUAGE"));
+            assertEquals("english", props.asMap().get("language"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntAccessorRejectsOutOfRangeLong() {
+        registerService(HelloService.class, new HelloServiceImpl(), serviceProps().with("int", Integer.MAX_VALUE + 1L));
+        ServiceProperties.snapshot(bundleContext.getServiceReference(HelloService.class)).getInt("int", 0);
+    }
+
 }
\ No newline at end of file
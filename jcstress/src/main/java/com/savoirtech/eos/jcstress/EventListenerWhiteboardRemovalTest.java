@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.jcstress;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.savoirtech.eos.pattern.whiteboard.EventListenerWhiteboard;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Races {@link EventListenerWhiteboard#fire()} against the unregistration of a decorated listener.  Results are
+ * (calls received by the racing fire(); calls received by a fire() after the unregistration).
+ */
+@JCStressTest
+@Description("EventListenerWhiteboard fire() racing with the removal of a decorated listener.")
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "The listener was removed before the racing fire().")
+@Outcome(id = "1, 0", expect = ACCEPTABLE, desc = "The listener was removed after the racing fire().")
+@Outcome(expect = FORBIDDEN, desc = "The removed listener is still being called.")
+@State
+public class EventListenerWhiteboardRemovalTest {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final StubFramework framework = new StubFramework();
+    private final EventListenerWhiteboard<Listener> whiteboard = new EventListenerWhiteboard<>(framework.getBundleContext(), Listener.class, (svc, props) -> svc::onEvent);
+    private final StubFramework.StubReference reference = framework.register(Listener.class, calls::incrementAndGet);
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Actor
+    public void fire(II_Result result) {
+        whiteboard.fire().onEvent();
+        result.r1 = calls.get();
+    }
+
+    @Actor
+    public void unregister() {
+        reference.unregister();
+    }
+
+    @Arbiter
+    public void arbiter(II_Result result) {
+        final int before = calls.get();
+        whiteboard.fire().onEvent();
+        result.r2 = calls.get() - before;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public interface Listener {
+        void onEvent();
+    }
+}
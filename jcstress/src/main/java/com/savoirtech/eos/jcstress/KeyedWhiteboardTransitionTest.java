@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.jcstress;
+
+import com.savoirtech.eos.pattern.whiteboard.KeyedWhiteboard;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Races a modification and the unregistration of a keyed service against the registration of a second service with
+ * the same key.  Results are (service visible for the key: 0 = none, 1 = first, 2 = second; tracked service count).
+ */
+@JCStressTest
+@Description("KeyedWhiteboard modify/unregister racing with a registration for the same key.")
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "The second service was registered while the key was taken, and was rejected.")
+@Outcome(id = "2, 1", expect = ACCEPTABLE, desc = "The second service was registered after the key was released.")
+@Outcome(expect = FORBIDDEN, desc = "The lookup disagrees with the tracked services, or the unregistered service came back.")
+@State
+public class KeyedWhiteboardTransitionTest {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final String KEY = "key";
+
+    private final StubFramework framework = new StubFramework();
+    private final KeyedWhiteboard<String, Runnable> whiteboard = new KeyedWhiteboard<>(framework.getBundleContext(), Runnable.class, (svc, props) -> props.getProperty("key"), 4);
+    private final Runnable first = () -> {
+    };
+    private final Runnable second = () -> {
+    };
+    private final StubFramework.StubReference firstReference = framework.register(Runnable.class, first, "key", KEY);
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Actor
+    public void modifyFirst() {
+        try {
+            firstReference.modify("key", KEY, "modified", true);
+        } catch (IllegalStateException e) {
+            // Already unregistered.
+        }
+    }
+
+    @Actor
+    public void unregisterFirst() {
+        firstReference.unregister();
+    }
+
+    @Actor
+    public void registerSecond() {
+        framework.register(Runnable.class, second, "key", KEY);
+    }
+
+    @Arbiter
+    public void arbiter(II_Result result) {
+        final Runnable service = whiteboard.getService(KEY);
+        result.r1 = service == null ? 0 : service == first ? 1 : 2;
+        result.r2 = whiteboard.getServiceCount();
+    }
+}
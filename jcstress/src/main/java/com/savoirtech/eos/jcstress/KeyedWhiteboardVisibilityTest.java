@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.jcstress;
+
+import com.savoirtech.eos.pattern.whiteboard.KeyedWhiteboard;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.JI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE_INTERESTING;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Checks that a reader which observes a new whiteboard version also observes the change behind it.  Results are
+ * (observed version; service visible: 0 = no, 1 = yes).
+ */
+@JCStressTest
+@Description("KeyedWhiteboard version bumps happen-after the lookup table update.")
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "The reader ran before the registration.")
+@Outcome(id = "0, 1", expect = ACCEPTABLE_INTERESTING, desc = "The service became visible between reading the version and the lookup.")
+@Outcome(id = "1, 1", expect = ACCEPTABLE, desc = "The reader ran after the registration.")
+@Outcome(id = "1, 0", expect = FORBIDDEN, desc = "The version changed but the service is not visible.")
+@State
+public class KeyedWhiteboardVisibilityTest {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final String KEY = "key";
+
+    private final StubFramework framework = new StubFramework();
+    private final KeyedWhiteboard<String, Runnable> whiteboard = new KeyedWhiteboard<>(framework.getBundleContext(), Runnable.class, (svc, props) -> props.getProperty("key"), 4);
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Actor
+    public void register() {
+        framework.register(Runnable.class, () -> {
+        }, "key", KEY);
+    }
+
+    @Actor
+    public void read(JI_Result result) {
+        result.r1 = whiteboard.getVersion();
+        result.r2 = whiteboard.getService(KEY) == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.jcstress;
+
+import com.savoirtech.eos.pattern.whiteboard.SingleWhiteboard;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Races a modification and the unregistration of the tracked service against the registration of a second one.
+ * Results are (service visible: 0 = none, 1 = first, 2 = second; tracked service count).
+ */
+@JCStressTest
+@Description("SingleWhiteboard modify/unregister racing with a new registration.")
+@Outcome(id = "0, 0", expect = ACCEPTABLE, desc = "The second service was registered while the first was held, and was rejected.")
+@Outcome(id = "2, 1", expect = ACCEPTABLE, desc = "The second service was registered after the first was released.")
+@Outcome(expect = FORBIDDEN, desc = "The lookup disagrees with the tracked services, or the unregistered service came back.")
+@State
+public class SingleWhiteboardTransitionTest {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final StubFramework framework = new StubFramework();
+    private final SingleWhiteboard<Runnable> whiteboard = new SingleWhiteboard<>(framework.getBundleContext(), Runnable.class);
+    private final Runnable first = () -> {
+    };
+    private final Runnable second = () -> {
+    };
+    private final StubFramework.StubReference firstReference = framework.register(Runnable.class, first, "name", "first");
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Actor
+    public void modifyFirst() {
+        try {
+            firstReference.modify("name", "first", "modified", true);
+        } catch (IllegalStateException e) {
+            // Already unregistered.
+        }
+    }
+
+    @Actor
+    public void unregisterFirst() {
+        firstReference.unregister();
+    }
+
+    @Actor
+    public void registerSecond() {
+        framework.register(Runnable.class, second, "name", "second");
+    }
+
+    @Arbiter
+    public void arbiter(II_Result result) {
+        final Runnable service = whiteboard.getService();
+        result.r1 = service == null ? 0 : service == first ? 1 : 2;
+        result.r2 = whiteboard.getServiceCount();
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.jcstress;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * A minimal, lock-free stand-in for an OSGi framework.  Unlike a real framework, which serializes much of its own
+ * bookkeeping, service events are delivered straight to the registered listeners on the calling thread, so that
+ * jcstress actors drive the whiteboards' {@link org.osgi.util.tracker.ServiceTracker} callbacks concurrently with as
+ * little interference as possible.  Only the parts of {@link BundleContext} used by the whiteboards are implemented.
+ */
+public class StubFramework {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static final AtomicLong SERVICE_IDS = new AtomicLong();
+
+    private final List<ServiceListener> listeners = new CopyOnWriteArrayList<>();
+    private final Bundle bundle = proxy(Bundle.class, (proxy, method, args) -> "getSymbolicName".equals(method.getName()) ? "jcstress" : null);
+    private final BundleContext bundleContext = proxy(BundleContext.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "addServiceListener":
+                listeners.add((ServiceListener) args[0]);
+                return null;
+            case "removeServiceListener":
+                listeners.remove(args[0]);
+                return null;
+            case "getService":
+                return ((StubReference) args[0]).getService();
+            case "ungetService":
+                return Boolean.TRUE;
+            case "getBundle":
+                return bundle;
+            default:
+                return null;
+        }
+    });
+
+//----------------------------------------------------------------------------------------------------------------------
+// Static Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    final Object result = handler.invoke(proxy, method, args);
+                    if (result == null && method.getReturnType() == boolean.class) {
+                        return Boolean.FALSE;
+                    }
+                    if (result == null && method.getReturnType() == long.class) {
+                        return 0L;
+                    }
+                    if (result == null && method.getReturnType() == int.class) {
+                        return 0;
+                    }
+                    return result;
+            }
+        }));
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Getter/Setter Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    public BundleContext getBundleContext() {
+        return bundleContext;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Registers a service, delivering the {@link ServiceEvent#REGISTERED} event on the calling thread.
+     *
+     * @param serviceType the service type
+     * @param service     the service object
+     * @param properties  the service properties, as name/value pairs
+     * @param <S>         the service type
+     * @return the service reference, which can be used to modify or unregister the service
+     */
+    public <S> StubReference register(Class<S> serviceType, S service, Object... properties) {
+        final StubReference reference = new StubReference(serviceType, service, SERVICE_IDS.incrementAndGet(), properties);
+        reference.fire(ServiceEvent.REGISTERED);
+        return reference;
+    }
+
+//----------------------------------------------------------------------------------------------------------------------
+// Inner Classes
+//----------------------------------------------------------------------------------------------------------------------
+
+    public final class StubReference implements ServiceReference<Object> {
+        private final Object service;
+        private final Map<String, Object> fixed;
+        private volatile Map<String, Object> properties;
+        private volatile boolean unregistered;
+
+        private StubReference(Class<?> serviceType, Object service, long serviceId, Object... properties) {
+            this.service = service;
+            final Map<String, Object> fixed = new HashMap<>();
+            fixed.put(Constants.OBJECTCLASS, new String[]{serviceType.getName()});
+            fixed.put(Constants.SERVICE_ID, serviceId);
+            this.fixed = Collections.unmodifiableMap(fixed);
+            this.properties = merge(properties);
+        }
+
+        private Map<String, Object> merge(Object... properties) {
+            final Map<String, Object> merged = new HashMap<>(fixed);
+            for (int i = 0; i + 1 < properties.length; i += 2) {
+                merged.put(String.valueOf(properties[i]), properties[i + 1]);
+            }
+            return Collections.unmodifiableMap(merged);
+        }
+
+        private Object getService() {
+            return unregistered ? null : service;
+        }
+
+        private void fire(int type) {
+            final ServiceEvent event = new ServiceEvent(type, this);
+            for (ServiceListener listener : listeners) {
+                listener.serviceChanged(event);
+            }
+        }
+
+        /**
+         * Replaces the service properties, delivering the {@link ServiceEvent#MODIFIED} event on the calling thread.
+         * As with a real framework, the event may still be in flight when a concurrent unregistration completes.
+         *
+         * @param properties the service properties, as name/value pairs
+         * @throws IllegalStateException if the service has already been unregistered
+         */
+        public void modify(Object... properties) {
+            if (unregistered) {
+                throw new IllegalStateException("Service already unregistered.");
+            }
+            this.properties = merge(properties);
+            fire(ServiceEvent.MODIFIED);
+        }
+
+        /**
+         * Unregisters the service, delivering the {@link ServiceEvent#UNREGISTERING} event on the calling thread.
+         */
+        public void unregister() {
+            unregistered = true;
+            fire(ServiceEvent.UNREGISTERING);
+        }
+
+        @Override
+        public Object getProperty(String key) {
+            return properties.get(key);
+        }
+
+        @Override
+        public String[] getPropertyKeys() {
+            return properties.keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public Bundle getBundle() {
+            return bundle;
+        }
+
+        @Override
+        public Bundle[] getUsingBundles() {
+            return null;
+        }
+
+        @Override
+        public boolean isAssignableTo(Bundle bundle, String className) {
+            return true;
+        }
+
+        @Override
+        public int compareTo(Object reference) {
+            return Long.compare((Long) ((StubReference) reference).fixed.get(Constants.SERVICE_ID), (Long) fixed.get(Constants.SERVICE_ID));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015-2015 Savoir Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.savoirtech.eos.jcstress;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.savoirtech.eos.pattern.whiteboard.SingleWhiteboard;
+import com.savoirtech.eos.pattern.whiteboard.WhiteboardEvent;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Races the registration of a whiteboard listener (with replay) against the registration of a service.  The result
+ * is the number of {@link WhiteboardEvent.Type#ADDED} events the listener received.
+ */
+@JCStressTest
+@Description("Whiteboard listener replay racing with a service registration.")
+@Outcome(id = "1", expect = ACCEPTABLE, desc = "The listener saw the service exactly once.")
+@Outcome(id = "0", expect = FORBIDDEN, desc = "The listener missed the service.")
+@Outcome(expect = FORBIDDEN, desc = "The listener saw the service more than once.")
+@State
+public class WhiteboardListenerReplayTest {
+//----------------------------------------------------------------------------------------------------------------------
+// Fields
+//----------------------------------------------------------------------------------------------------------------------
+
+    private final AtomicInteger added = new AtomicInteger();
+    private final StubFramework framework = new StubFramework();
+    private final SingleWhiteboard<Runnable> whiteboard = new SingleWhiteboard<>(framework.getBundleContext(), Runnable.class);
+
+//----------------------------------------------------------------------------------------------------------------------
+// Other Methods
+//----------------------------------------------------------------------------------------------------------------------
+
+    @Actor
+    public void listen() {
+        whiteboard.addWhiteboardListener(event -> {
+            if (event.getType() == WhiteboardEvent.Type.ADDED) {
+                added.incrementAndGet();
+            }
+        }, true);
+    }
+
+    @Actor
+    public void register() {
+        framework.register(Runnable.class, () -> {
+        });
+    }
+
+    @Arbiter
+    public void arbiter(I_Result result) {
+        result.r1 = added.get();
+    }
+}